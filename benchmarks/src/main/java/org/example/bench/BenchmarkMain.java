@@ -0,0 +1,31 @@
+package org.example.bench;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.results.format.ResultFormatType;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Same as org.openjdk.jmh.Main, but results always land as JSON in results/<version>.json
+// (unless -rf / -rff are passed) so two releases can be diffed run against run.
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(cli);
+
+        if (!cli.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cli.getResult().hasValue()) {
+            String version = BenchmarkMain.class.getPackage().getImplementationVersion();
+            Path out = Path.of("results", (version != null ? version : "dev") + ".json");
+            Files.createDirectories(out.getParent());
+            options.result(out.toString());
+        }
+        new Runner(options.build()).run();
+    }
+}
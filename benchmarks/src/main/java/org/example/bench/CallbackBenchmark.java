@@ -0,0 +1,74 @@
+package org.example.bench;
+
+import org.example.model.Community;
+import org.example.model.Question;
+import org.example.model.Survey;
+import org.example.model.User;
+import org.example.service.SurveyManager;
+import org.example.util.CallbackCodec;
+import org.openjdk.jmh.annotations.*;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// A button press end to end with Telegram stubbed out: dispatcher lane, callback decode,
+// survey/member routing, partial-answer CAS and the answerCallbackQuery call.
+// Only the first question is ever pressed so no "thank you" messages hit the send rate limit.
+// The dispatcher bounds pending updates, so in steady state submit rate == processing rate.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CallbackBenchmark {
+
+    private static final int MEMBERS = 50_000;
+
+    private StubTelegramBot bot;
+    private Update[] updates;
+
+    @Setup
+    public void setUp() {
+        Community community = new Community();
+        for (int i = 1; i <= MEMBERS; i++) community.addMember(new User(i, "member" + i));
+        SurveyManager manager = new SurveyManager(community, null);
+        List<String> options = List.of("a", "b", "c", "d");
+        Survey survey = manager.createManualSurvey(
+                List.of(new Question("q1", options), new Question("q2", options)), community.findMember(1));
+        bot = StubTelegramBot.create(community, manager);
+
+        updates = new Update[MEMBERS];
+        for (int i = 0; i < MEMBERS; i++) {
+            org.telegram.telegrambots.meta.api.objects.User from = new org.telegram.telegrambots.meta.api.objects.User();
+            from.setId((long) i + 1);
+            from.setFirstName("member" + (i + 1));
+            CallbackQuery cb = new CallbackQuery();
+            cb.setId(Integer.toString(i));
+            cb.setFrom(from);
+            cb.setData(CallbackCodec.encode(survey.getHandle(), 0, i & 3));
+            Update u = new Update();
+            u.setCallbackQuery(cb);
+            updates[i] = u;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void pressButton(Cursor cursor) {
+        bot.onUpdateReceived(updates[cursor.next]);
+        cursor.next = (cursor.next + 1) % MEMBERS;
+    }
+
+    @TearDown(Level.Iteration)
+    public void drain() throws InterruptedException {
+        while (bot.getUpdateStats().pending() > 0) Thread.sleep(1);
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.bench;
+
+import org.example.util.CallbackCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Button payload decoding: the split-based parser the bot used to have vs CallbackCodec
+// on both the compact v1 format and the legacy "sv|..." text it still accepts.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CallbackParseBenchmark {
+
+    private String legacy;
+    private String compact;
+
+    @Setup
+    public void setUp() {
+        String id = UUID.randomUUID().toString();
+        legacy = "sv|" + id + "|q|2|o|3";
+        compact = CallbackCodec.encode(CallbackCodec.surveyHandle(id), 2, 3);
+    }
+
+    @Benchmark
+    public Object splitLegacy() {
+        return splitParse(legacy);
+    }
+
+    @Benchmark
+    public long codecLegacy() {
+        return CallbackCodec.decode(legacy);
+    }
+
+    @Benchmark
+    public long codecCompact() {
+        return CallbackCodec.decode(compact);
+    }
+
+    private record ParsedData(String surveyId, int qIndex, int optIndex) {}
+
+    // the parser TelegramSurveyBot shipped before CallbackCodec, kept as the baseline
+    private static ParsedData splitParse(String data) {
+        try {
+            String[] t = data.split("\\|");
+            if (t.length != 6) return null;
+            if (!"sv".equals(t[0]) || !"q".equals(t[2]) || !"o".equals(t[4])) return null;
+            return new ParsedData(t[1], Integer.parseInt(t[3]), Integer.parseInt(t[5]));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.bench;
+
+import org.example.model.Community;
+import org.example.model.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Growing a community from empty to N members in one go (one shot per fork iteration,
+// since the interesting part is the resizes on the way up).
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class CommunityBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int members;
+
+    private User[] users;
+
+    @Setup
+    public void setUp() {
+        users = new User[members];
+        for (int i = 0; i < members; i++) users[i] = new User(100_000_000L + i * 7919L, "member" + i);
+    }
+
+    @Benchmark
+    public Community addMembers() {
+        Community community = new Community();
+        for (User u : users) community.addMember(u);
+        return community;
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.bench;
+
+import org.example.model.ChatGPTResponse;
+import org.example.service.ChatGPTService;
+import org.example.service.HedgePolicy;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+// Hedged vs plain send-message against StubLlmServer:
+//   java -cp benchmarks.jar org.example.bench.HedgeHarness [calls] [slowFraction] [slowMillis] [balance] [budgetFraction]
+// Prints latency percentiles for both runs plus hedge count and spend, and exits with 1 if
+// the hedged run ever spent more than its budget.
+public class HedgeHarness {
+
+    public static void main(String[] args) throws Exception {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        double slowFraction = args.length > 1 ? Double.parseDouble(args[1]) : 0.1;
+        long slowMillis = args.length > 2 ? Long.parseLong(args[2]) : 2000;
+        double balance = args.length > 3 ? Double.parseDouble(args[3]) : 200;
+        double budgetFraction = args.length > 4 ? Double.parseDouble(args[4]) : 0.1;
+        double callCost = 1;
+
+        try (StubLlmServer stub = new StubLlmServer(40, 120, slowFraction, slowMillis, balance)) {
+            ChatGPTService plain = service(stub);
+            long[] plainMillis = run(plain, calls, false);
+            report("plain", plainMillis, stub.sends.sum(), 0);
+
+            long sendsBefore = stub.sends.sum();
+            ChatGPTService hedged = service(stub);
+            hedged.setHedgePolicy(new HedgePolicy(0.9, 300, 20, budgetFraction, callCost));
+            long[] hedgedMillis = run(hedged, calls, true);
+            Thread.sleep(slowMillis + 200); // let cancelled legs reach the server's write
+            report("hedged", hedgedMillis, stub.sends.sum() - sendsBefore, hedged.getHedgesFired());
+
+            double budget = balance * budgetFraction;
+            double spent = hedged.getHedgesFired() * callCost;
+            System.out.printf("budget %.1f, spent %.1f, left %.1f, abandoned replies %d%n",
+                    budget, spent, hedged.getHedgeBudgetLeft(), stub.abandoned.sum());
+            if (spent > budget) {
+                System.out.println("FAIL: hedges overspent the budget");
+                System.exit(1);
+            }
+        }
+    }
+
+    private static ChatGPTService service(StubLlmServer stub) {
+        return new ChatGPTService(stub.baseUrl(), "bench", Duration.ofSeconds(2), Duration.ofSeconds(10),
+                3, 100, 1000, 1000);
+    }
+
+    private static long[] run(ChatGPTService gpt, int calls, boolean hedged) {
+        long[] millis = new long[calls];
+        for (int i = 0; i < calls; i++) {
+            long start = System.nanoTime();
+            ChatGPTResponse r = hedged
+                    ? gpt.sendMessageHedged("prompt", ChatGPTResponse::isSuccess).join()
+                    : gpt.sendMessageAsync("prompt").join();
+            if (!r.isSuccess()) throw new IllegalStateException("Call failed: " + r);
+            millis[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        return millis;
+    }
+
+    private static void report(String name, long[] millis, long sends, long hedges) {
+        long[] sorted = millis.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-7s p50 %4d ms  p90 %4d ms  p99 %4d ms  max %4d ms  sends %d  hedges %d%n", name,
+                at(sorted, 0.5), at(sorted, 0.9), at(sorted, 0.99), sorted[sorted.length - 1], sends, hedges);
+    }
+
+    private static long at(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.bench;
+
+import org.example.bench.legacy.LegacySurveyJsonParser;
+import org.example.model.Question;
+import org.example.util.ResponseUtils;
+import org.example.util.SurveyJsonParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// LLM output handling, on the shapes the model actually returns: bare JSON, JSON in a
+// ```json fence with chatter around it, and escaped text with quotes and unicode.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    static final String BARE = """
+            {"questions":[{"text":"מה היום המועדף עליך למפגש?","options":["ראשון","שני","שלישי"]},\
+            {"text":"באיזו שעה?","options":["בוקר","צהריים","ערב","לילה"]}]}""";
+
+    static final String FENCED = """
+            בטח! הנה הסקר שביקשת:
+
+            ```json
+            {
+              "questions": [
+                {"text": "What should the next meetup be about?", "options": ["Java", "Kotlin", "Go"]},
+                {"text": "Preferred format?", "options": ["Talk", "Workshop"]},
+                {"text": "How long?", "options": ["1h", "2h", "Half day", "Full day"]}
+              ]
+            }
+            ```
+
+            אם תרצה, אוכל להוסיף שאלות נוספות.""";
+
+    static final String ESCAPED = """
+            {"questions":[{"text":"Do you agree with \\"remote first\\"?","options":["Yes \\u2705","No \\u274c",\
+            "Depends \\\\ maybe"]},{"text":"Line\\nbreak {braces} inside","options":["A","B"]}]}""";
+
+    @Param({"BARE", "FENCED", "ESCAPED"})
+    public String sample;
+
+    private String text;
+    private String block;
+
+    @Setup
+    public void setUp() {
+        text = switch (sample) {
+            case "BARE" -> BARE;
+            case "FENCED" -> FENCED;
+            default -> ESCAPED;
+        };
+        block = ResponseUtils.extractFirstJsonBlock(text);
+    }
+
+    @Benchmark
+    public String extractFirstJsonBlock() {
+        return ResponseUtils.extractFirstJsonBlock(text);
+    }
+
+    @Benchmark
+    public List<Question> parseQuestions() {
+        return SurveyJsonParser.parseQuestions(block);
+    }
+
+    @Benchmark
+    public List<Question> parseQuestionsLegacy() {
+        return LegacySurveyJsonParser.parseQuestions(block);
+    }
+}
@@ -0,0 +1,155 @@
+package org.example.bench;
+
+import org.example.bench.legacy.LegacySurveyJsonParser;
+import org.example.model.Question;
+import org.example.util.SurveyJsonParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Robustness check for SurveyJsonParser, run by hand:
+//   java -cp target/benchmarks.jar org.example.bench.ParserFuzz [iterations] [seed]
+// 1. corpus: every file in llm-corpus/ parsed by the new and the legacy parser, side by side
+// 2. round trip: random questions (quotes, backslashes, control chars, Hebrew, emoji, randomly
+//    \\u-escaped) serialized as JSON must parse back exactly
+// 3. mutation: corpus entries with random deletions/insertions/truncations must never throw
+//    and never yield a question outside the 2-4 option rule
+// Exits with status 1 on the first broken property.
+public class ParserFuzz {
+
+    private static final String ALPHABET = "ab yz\"\\/{}[]:,\n\t\r\u0001אבג😀";
+
+    public static void main(String[] args) throws IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+        Random rnd = new Random(seed);
+        System.out.println("seed=" + seed);
+
+        List<String> corpus = new ArrayList<>();
+        for (String name : resource("llm-corpus/index.txt").split("\n")) {
+            if (name.isBlank() || name.equals("index.txt")) continue;
+            String text = resource("llm-corpus/" + name.trim());
+            corpus.add(text);
+            System.out.println("== " + name);
+            System.out.println("   new:    " + describe(SurveyJsonParser.parseQuestions(text)));
+            System.out.println("   legacy: " + describe(LegacySurveyJsonParser.parseQuestions(text)));
+        }
+
+        for (int i = 0; i < iterations; i++) {
+            List<Question> expected = randomQuestions(rnd);
+            String json = toJson(expected, rnd);
+            List<Question> actual = SurveyJsonParser.parseQuestions(json);
+            if (!describe(expected).equals(describe(actual))) {
+                fail("round trip", json, describe(expected) + "\n   got " + describe(actual));
+            }
+        }
+
+        for (int i = 0; i < iterations; i++) {
+            String mutated = mutate(corpus.get(rnd.nextInt(corpus.size())), rnd);
+            try {
+                List<Question> qs = SurveyJsonParser.parseQuestions(mutated);
+                if (qs.size() > 3) fail("too many questions", mutated, describe(qs));
+                for (Question q : qs) {
+                    int n = q.getOptions().size();
+                    if (n < 2 || n > 4) fail("option count", mutated, describe(qs));
+                }
+            } catch (RuntimeException e) {
+                fail("exception " + e, mutated, "");
+            }
+        }
+        System.out.println("ok: " + corpus.size() + " corpus files, " + iterations + " round trips, "
+                + iterations + " mutations");
+    }
+
+    private static List<Question> randomQuestions(Random rnd) {
+        List<Question> out = new ArrayList<>();
+        int n = 1 + rnd.nextInt(3);
+        for (int i = 0; i < n; i++) {
+            List<String> options = new ArrayList<>();
+            int k = 2 + rnd.nextInt(3);
+            for (int j = 0; j < k; j++) options.add(randomString(rnd));
+            out.add(new Question(randomString(rnd), options));
+        }
+        return out;
+    }
+
+    private static String randomString(Random rnd) {
+        StringBuilder sb = new StringBuilder();
+        int len = rnd.nextInt(12);
+        for (int i = 0; i < len; i++) {
+            int at = rnd.nextInt(ALPHABET.length());
+            if (Character.isHighSurrogate(ALPHABET.charAt(at))) sb.append(ALPHABET, at, at + 2);
+            else if (!Character.isLowSurrogate(ALPHABET.charAt(at))) sb.append(ALPHABET.charAt(at));
+        }
+        return sb.toString();
+    }
+
+    private static String toJson(List<Question> questions, Random rnd) {
+        StringBuilder sb = new StringBuilder("{\"questions\":[");
+        for (int i = 0; i < questions.size(); i++) {
+            if (i > 0) sb.append(", ");
+            sb.append("{\"text\":");
+            quote(sb, questions.get(i).getText(), rnd);
+            sb.append(",\"options\":[");
+            List<String> options = questions.get(i).getOptions();
+            for (int j = 0; j < options.size(); j++) {
+                if (j > 0) sb.append(',');
+                quote(sb, options.get(j), rnd);
+            }
+            sb.append("]}");
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static void quote(StringBuilder sb, String s, Random rnd) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c == '\n') sb.append("\\n");
+            else if (c == '\t') sb.append("\\t");
+            else if (c < 0x20 || rnd.nextInt(4) == 0) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    private static String mutate(String s, Random rnd) {
+        StringBuilder sb = new StringBuilder(s);
+        int edits = 1 + rnd.nextInt(4);
+        for (int e = 0; e < edits && sb.length() > 0; e++) {
+            int at = rnd.nextInt(sb.length());
+            switch (rnd.nextInt(4)) {
+                case 0 -> sb.deleteCharAt(at);
+                case 1 -> sb.insert(at, ALPHABET.charAt(rnd.nextInt(ALPHABET.length())));
+                case 2 -> sb.setLength(at);
+                default -> sb.insert(at, "\\u");
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String describe(List<Question> questions) {
+        StringBuilder sb = new StringBuilder("[");
+        for (Question q : questions) {
+            sb.append(q.getText().replace("\n", "\\n")).append(" -> ").append(q.getOptions()).append("; ");
+        }
+        return sb.append(']').toString();
+    }
+
+    private static void fail(String what, String input, String detail) {
+        System.out.println("FAILED " + what + "\n   input " + input + "\n   " + detail);
+        System.exit(1);
+    }
+
+    private static String resource(String name) throws IOException {
+        try (InputStream in = ParserFuzz.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) throw new IOException("missing resource " + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
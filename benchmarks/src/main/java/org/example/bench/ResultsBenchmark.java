@@ -0,0 +1,46 @@
+package org.example.bench;
+
+import org.example.model.Question;
+import org.example.model.ResultsSnapshot;
+import org.example.model.Survey;
+import org.example.model.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResultsBenchmark {
+
+    private Question question;
+    private Survey survey;
+
+    @Setup
+    public void setUp() {
+        question = new Question("Which day suits you?", List.of("Sunday", "Monday", "Tuesday", "Wednesday"));
+        for (int i = 0; i < 10_000; i++) question.addVote(i % 7 % 4);
+
+        List<String> options = List.of("a", "b", "c", "d");
+        survey = new Survey(UUID.randomUUID().toString(),
+                List.of(new Question("q1", options), new Question("q2", options)), new User(1, "creator"));
+        for (int i = 1; i <= 10_000; i++) survey.collectResponse(new User(i, "u"), List.of(i % 4, i % 3));
+    }
+
+    @Benchmark
+    public Map<String, Double> getResultsPercent() {
+        return question.getResultsPercent();
+    }
+
+    // unchanged version: the published snapshot is returned as is
+    @Benchmark
+    public ResultsSnapshot surveySnapshot() {
+        return survey.getResults();
+    }
+}
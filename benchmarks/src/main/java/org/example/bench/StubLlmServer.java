@@ -0,0 +1,86 @@
+package org.example.bench;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// The LLM endpoint on loopback with an injected latency distribution: send-message takes
+// fastMin..fastMax ms, except a slowFraction of calls that take slowMillis. check-balance and
+// clear-history answer at once. Replies are always a valid one-question survey. A reply the
+// client no longer waits for (a cancelled hedge leg) fails to write and is counted as abandoned.
+class StubLlmServer implements AutoCloseable {
+
+    private static final String SURVEY_REPLY = "<response><success>true</success><extra><![CDATA["
+            + "{\"questions\":[{\"text\":\"Pizza or pasta?\",\"options\":[\"Pizza\",\"Pasta\"]}]}"
+            + "]]></extra></response>";
+
+    final LongAdder sends = new LongAdder();
+    final LongAdder balanceChecks = new LongAdder();
+    final LongAdder abandoned = new LongAdder();
+
+    private final HttpServer server;
+    private final long fastMin, fastMax, slowMillis;
+    private final double slowFraction;
+    private final double balance;
+
+    StubLlmServer(long fastMin, long fastMax, double slowFraction, long slowMillis, double balance) throws IOException {
+        this.fastMin = fastMin;
+        this.fastMax = fastMax;
+        this.slowFraction = slowFraction;
+        this.slowMillis = slowMillis;
+        this.balance = balance;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try (ex) {
+            String path = ex.getRequestURI().getPath();
+            String body;
+            if (path.contains("check-balance")) {
+                balanceChecks.increment();
+                body = "<response><success>true</success><extra>Balance: " + balance + "</extra></response>";
+            } else if (path.contains("clear-history")) {
+                body = "<response><success>true</success></response>";
+            } else {
+                sends.increment();
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                long delay = rnd.nextDouble() < slowFraction ? slowMillis : rnd.nextLong(fastMin, fastMax + 1);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                body = SURVEY_REPLY;
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            try {
+                ex.sendResponseHeaders(200, bytes.length);
+                try (OutputStream out = ex.getResponseBody()) {
+                    out.write(bytes);
+                }
+            } catch (IOException e) {
+                abandoned.increment();
+            }
+        }
+    }
+}
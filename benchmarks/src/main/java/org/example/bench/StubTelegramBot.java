@@ -0,0 +1,32 @@
+package org.example.bench;
+
+import org.example.bot.TelegramSurveyBot;
+import org.example.model.Community;
+import org.example.service.SurveyManager;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.LongAdder;
+
+// The real bot with Telegram cut off: sendMessage goes to a counting sink and every other
+// Bot API call (answerCallbackQuery, ...) returns immediately, so benchmarks measure our code only.
+class StubTelegramBot extends TelegramSurveyBot {
+
+    final LongAdder sent;
+    final LongAdder apiCalls = new LongAdder();
+
+    private StubTelegramBot(Community community, SurveyManager manager, LongAdder sent) {
+        super(community, manager, message -> sent.increment());
+        this.sent = sent;
+    }
+
+    static StubTelegramBot create(Community community, SurveyManager manager) {
+        return new StubTelegramBot(community, manager, new LongAdder());
+    }
+
+    @Override
+    public <T extends Serializable, Method extends BotApiMethod<T>> T execute(Method method) {
+        apiCalls.increment();
+        return null;
+    }
+}
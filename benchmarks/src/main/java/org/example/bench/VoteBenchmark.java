@@ -0,0 +1,56 @@
+package org.example.bench;
+
+import org.example.model.Question;
+import org.example.model.Survey;
+import org.example.model.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Vote recording under contention: 8 threads hammering one survey / one question.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class VoteBenchmark {
+
+    private static final List<Integer> ANSWERS = List.of(1, 0, 3);
+
+    private Survey survey;
+    private Question question;
+    private final AtomicLong nextUser = new AtomicLong(1);
+
+    // a fresh survey per iteration so the response store doesn't grow without bound
+    @Setup(Level.Iteration)
+    public void setUp() {
+        List<String> options = List.of("a", "b", "c", "d");
+        survey = new Survey(UUID.randomUUID().toString(), List.of(
+                new Question("q1", options), new Question("q2", options), new Question("q3", options)),
+                new User(1, "creator"));
+        question = new Question("q", options);
+        nextUser.set(1);
+    }
+
+    @Benchmark
+    public boolean collectResponse() {
+        long id = nextUser.getAndIncrement();
+        return survey.collectResponse(new User(id, "u"), ANSWERS);
+    }
+
+    @Benchmark
+    public void addVote(ThreadIndex t) {
+        question.addVote(t.option);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadIndex {
+        private static final AtomicLong SEQ = new AtomicLong();
+        final int option = (int) (SEQ.getAndIncrement() & 3);
+    }
+}
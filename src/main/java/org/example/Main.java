@@ -1,25 +1,141 @@
 package org.example;
 
 import org.example.bot.TelegramSurveyBot;
+import org.example.metrics.Metrics;
+import org.example.metrics.MetricsJmx;
+import org.example.metrics.MetricsRegistry;
+import org.example.metrics.MetricsServer;
 import org.example.model.Community;
+import org.example.model.CommunityRegistry;
+import org.example.model.Survey;
+import org.example.model.SurveyStore;
 import org.example.model.User;
 import org.example.service.ChatGPTService;
+import org.example.service.HedgePolicy;
+import org.example.service.SurveyCache;
+import org.example.service.SurveyGenerationPipeline;
 import org.example.service.SurveyManager;
+import org.example.service.SurveyPrefetcher;
+import org.example.service.SurveyScheduler;
 import org.example.ui.SwingUI;
 import org.example.util.BotConfig;
+import org.example.util.Constants;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
+    private static final System.Logger LOG = System.getLogger(Main.class.getName());
+
     public static void main(String[] args) throws Exception {
-        Community community = new Community();
-        ChatGPTService gpt = new ChatGPTService();
-        SurveyManager manager = new SurveyManager(community, gpt);
+        if (BotConfig.COMMUNITY_IDS.length == 0) {
+            throw new IllegalStateException("BotConfig.COMMUNITY_IDS must list at least one community. ");
+        }
+        if (SurveyStore.migrateLegacyLayout(Path.of(BotConfig.DATA_DIR),
+                Path.of(BotConfig.DATA_DIR, String.valueOf(Community.DEFAULT_ID)))) {
+            System.out.println("Moved existing data into " + Path.of(BotConfig.DATA_DIR, String.valueOf(Community.DEFAULT_ID)));
+        }
+        CommunityRegistry registry = new CommunityRegistry();
+        Map<Long, SurveyStore> stores = new LinkedHashMap<>();
+        for (long id : BotConfig.COMMUNITY_IDS) {
+            Community c = new Community(id);
+            SurveyStore store = SurveyStore.open(Path.of(BotConfig.DATA_DIR, String.valueOf(id)), c);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    store.close();
+                } catch (Exception e) {
+                    LOG.log(System.Logger.Level.ERROR, "Survey store of community " + id + " not closed cleanly", e);
+                }
+            }));
+            registry.register(c);
+            stores.put(id, store);
+        }
+        // the console's community: the default one if it is served, otherwise the first configured
+        Community community = registry.find(Community.DEFAULT_ID);
+        if (community == null) community = registry.find(BotConfig.COMMUNITY_IDS[0]);
 
+        ChatGPTService gpt = new ChatGPTService();
+        if (Constants.API_HEDGING_ENABLED) {
+            gpt.setHedgePolicy(new HedgePolicy(Constants.API_HEDGE_PERCENTILE, Constants.API_HEDGE_DEFAULT_DELAY_MILLIS,
+                    Constants.API_HEDGE_MIN_SAMPLES, Constants.API_HEDGE_BUDGET_FRACTION, Constants.API_SEND_MESSAGE_COST));
+        }
+        SurveyCache aiCache = new SurveyCache(Constants.AI_CACHE_MAX_ENTRIES,
+                TimeUnit.HOURS.toMillis(Constants.AI_CACHE_TTL_HOURS), Path.of(BotConfig.DATA_DIR, Constants.AI_CACHE_FILE));
+        Runtime.getRuntime().addShutdownHook(new Thread(aiCache::flush));
+        SurveyManager manager = new SurveyManager(community, gpt, new SurveyScheduler(), registry, aiCache);
+        if (Constants.AI_PREFETCH_ENABLED) {
+            new SurveyPrefetcher(manager, gpt, List.of(Constants.AI_PREFETCH_TOPICS),
+                    TimeUnit.MINUTES.toMillis(Constants.AI_PREFETCH_INTERVAL_MINUTES),
+                    Constants.AI_PREFETCH_PER_CYCLE, Constants.AI_PREFETCH_MIN_BALANCE).start();
+        }
         User creator = new User(BotConfig.ADMIN_TELEGRAM_ID, "Admin");
         community.addMember(creator);
 
-        TelegramSurveyBot bot = TelegramSurveyBot.start(community, manager);
+        TelegramSurveyBot bot = BotConfig.WEBHOOK_MODE
+                ? TelegramSurveyBot.startWebhook(community, manager)
+                : TelegramSurveyBot.start(community, manager);
+        for (Community c : registry.getCommunities()) {
+            // restored from disk: the original launch and close timers died with the previous process
+            // (scheduled once the bot is up, so overdue launches go out and overdue closes send results)
+            for (Survey s : c.getActiveSurveys()) {
+                manager.restorePlan(s, (survey, closeMinutes) -> bot.sendSurveyToCommunity(survey, closeMinutes));
+            }
+        }
+        try {
+            registerMetrics(manager, bot, gpt, stores);
+        } catch (RuntimeException e) {
+            LOG.log(System.Logger.Level.WARNING, "Metrics not registered", e);
+        }
         System.out.println("Bot is running. Send /start from your account (DEV_MODE=true allows 1 member).");
 
         SwingUI.launch(community, manager, gpt, creator, bot);
     }
+
+    // state owned by the components themselves, read at scrape time
+    private static void registerMetrics(SurveyManager manager, TelegramSurveyBot bot, ChatGPTService gpt,
+                                        Map<Long, SurveyStore> stores) {
+        MetricsRegistry r = Metrics.REGISTRY;
+        stores.forEach((id, store) -> r.gauge("survey_store_failed", "1 once a community's journal stopped writing",
+                () -> store.isWritable() ? 0 : 1, "community", String.valueOf(id)));
+        SurveyScheduler scheduler = manager.getScheduler();
+        r.gauge("scheduler_lag_seconds", "Lateness of the last timer tick", () -> scheduler.getLastLagMillis() / 1000.0);
+        r.gauge("scheduler_max_lag_seconds", "Worst timer tick lateness since start", () -> scheduler.getMaxLagMillis() / 1000.0);
+
+        r.functionCounter("bot_updates_submitted_total", "Updates received", () -> bot.getUpdateStats().submitted());
+        r.functionCounter("bot_updates_rejected_total", "Updates dropped because the queue was full", () -> bot.getUpdateStats().rejected());
+        r.functionCounter("bot_updates_overflowed_total", "Votes and joins queued past a full lane", () -> bot.getUpdateStats().overflowed());
+        r.gauge("bot_updates_pending", "Updates queued or running", () -> bot.getUpdateStats().pending());
+        r.gauge("bot_update_lanes", "Chats with queued updates", () -> bot.getUpdateStats().activeLanes());
+
+        r.gauge("llm_circuit_open", "1 while the LLM circuit breaker fails fast", () -> gpt.isCircuitOpen() ? 1 : 0);
+        r.functionCounter("llm_hedges_total", "Hedged second requests sent", gpt::getHedgesFired);
+        r.gauge("llm_hedge_budget_left", "Balance units left for hedged requests", gpt::getHedgeBudgetLeft);
+        for (SurveyGenerationPipeline.Stage stage : SurveyGenerationPipeline.Stage.values()) {
+            r.gauge("survey_generation_stage_mean_seconds", "Mean time per generation stage",
+                    () -> manager.getGenerationStats().stages().get(stage.ordinal()).avgMillis() / 1000.0,
+                    "stage", stage.name().toLowerCase());
+        }
+        r.functionCounter("survey_generation_runs_total", "Survey generations started", () -> manager.getGenerationStats().runs());
+        r.functionCounter("survey_generation_failures_total", "Survey generations with no usable result",
+                () -> manager.getGenerationStats().failures());
+        r.functionCounter("survey_generation_reprompts_total", "Generations that needed a follow-up prompt",
+                () -> manager.getGenerationStats().reprompts());
+
+        // exporters are optional: a taken port or a clashing MBean must not stop the bot or the console
+        try {
+            MetricsJmx.register(r);
+        } catch (Exception e) {
+            LOG.log(System.Logger.Level.WARNING, "Metrics not exported over JMX", e);
+        }
+        if (BotConfig.METRICS_PORT > 0) {
+            try {
+                new MetricsServer(BotConfig.METRICS_PORT, BotConfig.METRICS_PATH, r).start();
+            } catch (Exception e) {
+                LOG.log(System.Logger.Level.WARNING, "Metrics endpoint not started on port " + BotConfig.METRICS_PORT, e);
+            }
+        }
+    }
 }
@@ -0,0 +1,13 @@
+package org.example.bot;
+
+public record FanOutReport(int recipients, int completed, long messagesSent, long messagesFailed, long elapsedMillis) {
+
+    public boolean isDone() { return completed == recipients; }
+
+    @Override
+    public String toString() {
+        return completed + "/" + recipients + " members, " +
+                messagesSent + " sent, " + messagesFailed + " failed, " +
+                elapsedMillis + " ms";
+    }
+}
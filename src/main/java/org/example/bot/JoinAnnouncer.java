@@ -0,0 +1,112 @@
+package org.example.bot;
+
+import org.example.model.Community;
+import org.example.model.User;
+import org.example.service.SurveyScheduler;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+
+import java.text.NumberFormat;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Coalesces joins into one digest per member per window instead of one broadcast per join.
+// A single digest thread walks the members round-robin; each member is told how many joined
+// since the last digest they actually received. When a newer window closes, the running
+// digest is abandoned (it is stale) and the new one continues from the same cursor, so the
+// number of messages is bounded by the send rate, not by joins squared.
+public class JoinAnnouncer {
+
+    private static final System.Logger LOG = System.getLogger(JoinAnnouncer.class.getName());
+
+    private final Community community;
+    private final RateLimitedSender sender;
+    private final long windowMillis;
+    private final SurveyScheduler scheduler;
+    private final ExecutorService digestThread = Executors.newSingleThreadExecutor(Thread.ofVirtual().factory());
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder superseded = new LongAdder();
+
+    // only touched by the digest thread; indexed by join position (members are append-only)
+    private int[] lastAnnouncedTotal = new int[16];
+    private int cursor;
+
+    public JoinAnnouncer(Community community, RateLimitedSender sender, SurveyScheduler scheduler, long windowMillis) {
+        this.community = community;
+        this.sender = sender;
+        this.scheduler = scheduler;
+        this.windowMillis = windowMillis;
+    }
+
+    public void memberJoined() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public long getDigestsSent() { return sent.sum(); }
+    public long getDigestsSuperseded() { return superseded.sum(); }
+
+    private void flush() {
+        flushScheduled.set(false);
+        long gen = generation.incrementAndGet();
+        digestThread.execute(() -> deliver(gen));
+    }
+
+    private void deliver(long gen) {
+        if (generation.get() != gen) return;
+        List<User> members = community.getMembers();
+        int total = members.size();
+        if (total == 0) return;
+        if (lastAnnouncedTotal.length < total) {
+            lastAnnouncedTotal = Arrays.copyOf(lastAnnouncedTotal, Math.max(total, lastAnnouncedTotal.length * 2));
+        }
+        String newest = members.get(total - 1).getName();
+
+        int start = cursor;
+        for (int step = 0; step < total; step++) {
+            if (generation.get() != gen) {
+                superseded.increment();
+                return;
+            }
+            int i = (start + step) % total;
+            // the member at position i joined when the community had i + 1 members
+            int seen = Math.max(lastAnnouncedTotal[i], i + 1);
+            int joined = total - seen;
+            if (joined <= 0) continue;
+
+            try {
+                sender.send(SendMessage.builder()
+                        .chatId(String.valueOf(members.get(i).getTelegramId()))
+                        .text(digestText(joined, total, newest))
+                        .build());
+                sent.increment();
+                // only a delivered digest counts: after a failure the next window sends the combined number
+                lastAnnouncedTotal[i] = total;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // already counted in telegram_execute_errors_total by the sender
+                LOG.log(System.Logger.Level.WARNING, "Join digest to member " + members.get(i).getTelegramId() + " not sent", e);
+            }
+            cursor = i + 1;
+        }
+    }
+
+    private static String digestText(int joined, int total, String newestName) {
+        String totalText = NumberFormat.getIntegerInstance(Locale.US).format(total);
+        if (joined == 1) {
+            return "A new member has joined: " + newestName + " (Total: " + totalText + ")";
+        }
+        return joined + " new members joined, total " + totalText;
+    }
+}
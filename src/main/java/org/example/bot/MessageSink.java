@@ -0,0 +1,8 @@
+package org.example.bot;
+
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+
+@FunctionalInterface
+public interface MessageSink {
+    void send(SendMessage message) throws Exception;
+}
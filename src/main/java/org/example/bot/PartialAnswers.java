@@ -0,0 +1,28 @@
+package org.example.bot;
+
+import java.util.List;
+
+// A member's in-progress answers packed into one long:
+//   bits 0..7   2-bit option index per question
+//   bits 8..11  mask of the questions answered so far
+final class PartialAnswers {
+
+    private PartialAnswers() {}
+
+    static long withAnswer(long state, int qIndex, int optIndex) {
+        int shift = qIndex * 2;
+        long answers = (state & ~(0b11L << shift)) | ((long) optIndex << shift);
+        return (answers & 0xFF) | (state & 0xF00) | (1L << (8 + qIndex));
+    }
+
+    static boolean isComplete(long state, int questionCount) {
+        long full = (1L << questionCount) - 1;
+        return ((state >>> 8) & 0xF) == full;
+    }
+
+    static List<Integer> answers(long state, int questionCount) {
+        Integer[] out = new Integer[questionCount];
+        for (int i = 0; i < questionCount; i++) out[i] = (int) ((state >>> (i * 2)) & 0b11);
+        return List.of(out);
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.bot;
+
+import org.example.metrics.Metrics;
+import org.example.util.BotConfig;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class RateLimitedSender {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final String METHOD = "SendMessage";
+
+    private final MessageSink sink;
+    private final TokenBucket global;
+    private final Map<Long, TokenBucket> perChat = new ConcurrentHashMap<>();
+
+    public RateLimitedSender(MessageSink sink) {
+        this.sink = sink;
+        this.global = new TokenBucket(BotConfig.GLOBAL_SEND_RATE_PER_SEC, BotConfig.GLOBAL_SEND_BURST);
+    }
+
+    public void send(SendMessage message) throws Exception {
+        TokenBucket chat = perChat.computeIfAbsent(Long.parseLong(message.getChatId()),
+                k -> new TokenBucket(BotConfig.PER_CHAT_SEND_RATE_PER_SEC, BotConfig.PER_CHAT_SEND_BURST));
+        for (int attempt = 1; ; attempt++) {
+            chat.acquire();
+            global.acquire();
+            long start = System.nanoTime();
+            try {
+                sink.send(message);
+                return;
+            } catch (TelegramApiRequestException e) {
+                Integer retryAfter = e.getParameters() != null ? e.getParameters().getRetryAfter() : null;
+                Metrics.telegramErrors(METHOD, retryAfter != null ? "rate_limited" : "api").increment();
+                if (retryAfter == null || attempt >= MAX_ATTEMPTS) throw e;
+                // 429: Telegram tells us how long the whole bot has to back off
+                global.pauseFor(TimeUnit.SECONDS.toNanos(retryAfter));
+            } catch (Exception e) {
+                if (!(e instanceof InterruptedException)) Metrics.telegramErrors(METHOD, "other").increment();
+                throw e;
+            } finally {
+                Metrics.TELEGRAM_SEND_MESSAGE.recordSince(start);
+            }
+        }
+    }
+
+    public void evictIdleChats() {
+        perChat.values().removeIf(TokenBucket::isIdle);
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.bot;
+
+import org.example.model.Question;
+import org.example.model.Survey;
+import org.example.util.CallbackCodec;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Question texts and inline keyboards of one survey, built once and shared by every
+// recipient: a fan-out only allocates the SendMessage shell carrying the chat id.
+// The markup is never mutated after construction, so sharing it across sends is safe.
+final class RenderedSurvey {
+
+    private final String[] texts;
+    private final InlineKeyboardMarkup[] keyboards;
+
+    private RenderedSurvey(String[] texts, InlineKeyboardMarkup[] keyboards) {
+        this.texts = texts;
+        this.keyboards = keyboards;
+    }
+
+    static RenderedSurvey of(Survey survey) {
+        List<Question> questions = survey.getQuestions();
+        String[] texts = new String[questions.size()];
+        InlineKeyboardMarkup[] keyboards = new InlineKeyboardMarkup[questions.size()];
+
+        for (int qIndex = 0; qIndex < questions.size(); qIndex++) {
+            Question q = questions.get(qIndex);
+            texts[qIndex] = (qIndex + 1) + ") " + q.getText();
+
+            List<InlineKeyboardButton> row = new ArrayList<>();
+            for (int i = 0; i < q.getOptions().size(); i++) {
+                row.add(InlineKeyboardButton.builder()
+                        .text((i + 1) + ". " + q.getOptions().get(i))
+                        .callbackData(CallbackCodec.encode(survey.getHandle(), qIndex, i))
+                        .build());
+            }
+            keyboards[qIndex] = InlineKeyboardMarkup.builder().keyboard(List.of(List.copyOf(row))).build();
+        }
+        return new RenderedSurvey(texts, keyboards);
+    }
+
+    int questionCount() {
+        return texts.length;
+    }
+
+    SendMessage question(long chatId, int qIndex) {
+        SendMessage sm = new SendMessage(Long.toString(chatId), texts[qIndex]);
+        sm.setReplyMarkup(keyboards[qIndex]);
+        return sm;
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.bot;
+
+import org.example.metrics.Metrics;
+import org.example.model.User;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+public class SurveyFanOut {
+
+    private static final int PROGRESS_STEPS = 20;
+
+    private final RateLimitedSender sender;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public SurveyFanOut(RateLimitedSender sender) {
+        this.sender = sender;
+    }
+
+    // Every recipient gets its own virtual thread; the sender's buckets decide the actual pace.
+    public CompletableFuture<FanOutReport> dispatch(Collection<User> recipients,
+                                                    Function<User, List<SendMessage>> messagesFor,
+                                                    Consumer<FanOutReport> progress) {
+        CompletableFuture<FanOutReport> done = new CompletableFuture<>();
+        int total = recipients.size();
+        long startNanos = System.nanoTime();
+        if (total == 0) {
+            done.complete(new FanOutReport(0, 0, 0, 0, 0));
+            return done;
+        }
+
+        AtomicInteger completed = new AtomicInteger();
+        LongAdder sent = new LongAdder();
+        LongAdder failed = new LongAdder();
+        int step = Math.max(1, total / PROGRESS_STEPS);
+
+        for (User u : recipients) {
+            executor.execute(() -> {
+                try {
+                    for (SendMessage sm : messagesFor.apply(u)) {
+                        try {
+                            sender.send(sm);
+                            sent.increment();
+                            Metrics.FANOUT_SENT.increment();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            failed.increment();
+                            Metrics.FANOUT_FAILED.increment();
+                            break;
+                        } catch (Exception e) {
+                            failed.increment();
+                            Metrics.FANOUT_FAILED.increment();
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    failed.increment();
+                    Metrics.FANOUT_FAILED.increment();
+                } finally {
+                    int n = completed.incrementAndGet();
+                    if (n == total || n % step == 0) {
+                        FanOutReport report = new FanOutReport(total, n, sent.sum(), failed.sum(),
+                                (System.nanoTime() - startNanos) / 1_000_000L);
+                        if (progress != null) progress.accept(report);
+                        if (n == total) {
+                            sender.evictIdleChats();
+                            done.complete(report);
+                        }
+                    }
+                }
+            });
+        }
+        return done;
+    }
+}
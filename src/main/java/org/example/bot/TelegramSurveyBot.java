@@ -1,38 +1,70 @@
 package org.example.bot;
 
+import org.example.metrics.Histogram;
+import org.example.metrics.Metrics;
 import org.example.model.Community;
-import org.example.model.Question;
+import org.example.model.CommunityRegistry;
+import org.example.model.ResultsSnapshot;
 import org.example.model.Survey;
-import org.example.model.SurveyResult;
 import org.example.model.User;
 import org.example.service.SurveyManager;
 import org.example.util.BotConfig;
+import org.example.util.CallbackCodec;
+import org.example.util.ConcurrentLongLongMap;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
 import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
 import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
-import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
-import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class TelegramSurveyBot extends TelegramLongPollingBot {
 
+    private static final System.Logger LOG = System.getLogger(TelegramSurveyBot.class.getName());
+
     private final Community community;
+    private final CommunityRegistry registry;
     private final SurveyManager surveyManager;
-    private final Map<Long, List<Integer>> partialAnswers = new ConcurrentHashMap<>();
+    // per open survey: telegramId -> packed partial answers
+    private final Map<String, ConcurrentLongLongMap> partialAnswers = new ConcurrentHashMap<>();
+    // per open survey: question texts and keyboards rendered once for all recipients
+    private final Map<String, RenderedSurvey> renderedSurveys = new ConcurrentHashMap<>();
+    private final RateLimitedSender sender;
+    private final SurveyFanOut fanOut;
+    private final Map<Long, JoinAnnouncer> joinAnnouncers = new ConcurrentHashMap<>();
+    private WebhookServer webhookServer;
+    private final UpdateDispatcher dispatcher =
+            new UpdateDispatcher(this::handleUpdate, TelegramSurveyBot::mustDeliver,
+                    BotConfig.UPDATE_LANE_CAPACITY, BotConfig.UPDATE_LANE_OVERFLOW, BotConfig.MAX_PENDING_UPDATES);
 
     public TelegramSurveyBot(Community community, SurveyManager surveyManager) {
+        this(community, surveyManager, null);
+    }
+
+    // sink == null sends through the Bot API; anything else (e.g. a local stub) replaces execute()
+    public TelegramSurveyBot(Community community, SurveyManager surveyManager, MessageSink sink) {
         this.community = community;
+        this.registry = surveyManager.getRegistry();
         this.surveyManager = surveyManager;
+        this.sender = new RateLimitedSender(sink != null ? sink : this::execute);
+        this.fanOut = new SurveyFanOut(sender);
+        surveyManager.addCloseListener(survey -> {
+            partialAnswers.remove(survey.getId());
+            renderedSurveys.remove(survey.getId());
+            sendResultsToCreator(survey);
+        });
     }
 
     public static TelegramSurveyBot start(Community community, SurveyManager manager) throws Exception {
@@ -42,27 +74,89 @@ public class TelegramSurveyBot extends TelegramLongPollingBot {
         return bot;
     }
 
+    // Webhook mode: Telegram pushes updates to our embedded server instead of being polled.
+    public static TelegramSurveyBot startWebhook(Community community, SurveyManager manager) throws Exception {
+        TelegramSurveyBot bot = new TelegramSurveyBot(community, manager);
+        WebhookServer server = new WebhookServer(BotConfig.WEBHOOK_PORT, BotConfig.WEBHOOK_PATH,
+                BotConfig.WEBHOOK_SECRET, bot::submitUpdate);
+        server.start();
+        bot.execute(SetWebhook.builder()
+                .url(BotConfig.WEBHOOK_PUBLIC_URL)
+                .secretToken(BotConfig.WEBHOOK_SECRET)
+                .build());
+        bot.webhookServer = server;
+        return bot;
+    }
+
+    public WebhookServer getWebhookServer() { return webhookServer; }
+
     @Override public String getBotUsername() { return BotConfig.TELEGRAM_BOT_USERNAME; }
     @Override public String getBotToken()    { return BotConfig.TELEGRAM_BOT_TOKEN; }
 
     @Override
     public void onUpdateReceived(Update update) {
+        if (!dispatcher.submit(update) && update.hasCallbackQuery()) {
+            // the vote was not taken: say so instead of leaving the button spinning
+            String callbackId = update.getCallbackQuery().getId();
+            Thread.startVirtualThread(() -> answerCallback(callbackId, "Busy right now, please tap again. "));
+        }
+    }
+
+    // webhook mode: false tells the caller to have Telegram redeliver the update
+    public boolean submitUpdate(Update update) {
+        return dispatcher.submit(update);
+    }
+
+    public UpdateDispatcher.Stats getUpdateStats() {
+        return dispatcher.getStats();
+    }
+
+    private void handleUpdate(Update update) {
+        long start = System.nanoTime();
+        Histogram latency = Metrics.UPDATE_OTHER;
+        String type = "other";
         try {
             if (update.hasMessage() && update.getMessage().hasText()) {
+                latency = Metrics.UPDATE_MESSAGE;
+                type = "message";
                 onText(update.getMessage());
             } else if (update.hasCallbackQuery()) {
+                latency = Metrics.UPDATE_CALLBACK;
+                type = "callback";
                 onCallback(update.getCallbackQuery());
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            Metrics.updateErrors(type).increment();
+            LOG.log(System.Logger.Level.WARNING, "Failed to handle " + type + " update " + update.getUpdateId(), e);
+        } finally {
+            latency.recordSince(start);
         }
     }
 
+    // votes and joins: the only updates whose loss the user would notice
+    private static boolean mustDeliver(Update update) {
+        if (update.hasCallbackQuery()) return true;
+        if (!update.hasMessage() || !update.getMessage().hasText()) return false;
+        String text = update.getMessage().getText().trim();
+        return text.startsWith("/start") || "Hi".equalsIgnoreCase(text) || "היי".equals(text);
+    }
+
     private void onText(Message msg) throws Exception {
         String text = msg.getText().trim();
         long chatId = msg.getChatId();
         String name = displayName(msg.getFrom());
 
+        // "/start 42" comes from a t.me/<bot>?start=42 deep link and selects community 42
+        Community target = community;
+        if (text.startsWith("/start ")) {
+            target = parseCommunity(text.substring("/start ".length()).trim());
+            if (target == null) {
+                sendText(chatId, "Unknown community. ");
+                return;
+            }
+            text = "/start";
+        }
+
         boolean wantsJoin =
                 "/start".equals(text) ||
                         "Hi".equalsIgnoreCase(text) ||
@@ -73,67 +167,93 @@ public class TelegramSurveyBot extends TelegramLongPollingBot {
         }
 
         User user = new User(chatId, name);
-        boolean added = community.addMember(user);
+        boolean added;
+        try {
+            added = target.addMember(user);
+        } catch (IllegalStateException e) {
+            LOG.log(System.Logger.Level.WARNING, "Join refused: " + e.getMessage());
+            sendText(chatId, "Can't join right now, please try again later. ");
+            return;
+        }
 
         if (added) {
-            sendText(chatId, "Welcome, " + name + "! Community size now: " + community.getSize());
-            String announce = "A new member has joined: " + name + " Total: " + community.getSize() + ")";
-            broadcastToAllExcept(announce, chatId);
+            sendText(chatId, "Welcome, " + name + "! Community size now: " + target.getSize());
+            joinAnnouncer(target).memberJoined();
         } else {
             sendText(chatId, "You are already a member of the community! ");
         }
     }
 
+    private Community parseCommunity(String payload) {
+        try {
+            return registry.find(Long.parseLong(payload));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private JoinAnnouncer joinAnnouncer(Community c) {
+        return joinAnnouncers.computeIfAbsent(c.getId(), id -> new JoinAnnouncer(c, sender,
+                surveyManager.getScheduler(), BotConfig.JOIN_ANNOUNCE_WINDOW_SECONDS * 1000L));
+    }
+
     private void onCallback(CallbackQuery cb) throws Exception {
         String data = cb.getData();
         long userId = cb.getFrom().getId();
         String callbackId = cb.getId();
 
-        Survey active = community.getActiveSurvey();
+        long parsed = CallbackCodec.decode(data);
+        if (parsed < 0) {
+            answerCallback(callbackId, "⚠️ Choice invalid.");
+            return;
+        }
+        int qIndex = CallbackCodec.question(parsed);
+        int optIndex = CallbackCodec.option(parsed);
+
+        // the survey handle in the button routes straight to its survey and community
+        Survey active = registry.findSurveyByHandle(CallbackCodec.handle(parsed));
         if (active == null || !active.isActive()) {
             answerCallback(callbackId, "No active survey. ");
             return;
         }
+        Community owner = registry.communityOf(active);
 
-        User u = findUser(userId);
+        User u = owner != null ? owner.findMember(userId) : null;
         if (u == null) {
             answerCallback(callbackId, "You are not a member of the community. ");
             return;
         }
-        if (u.hasVoted()) {
+        if (active.hasResponded(userId)) {
             answerCallback(callbackId, "You have already replied to this survey. ");
             return;
         }
 
-        ParsedData parsed = parseCallback(data);
-        if (parsed == null || !active.getId().equals(parsed.surveyId)) {
-            answerCallback(callbackId, "⚠️ Choice invalid.");
-            return;
-        }
-
-        List<Integer> bucket = partialAnswers.computeIfAbsent(userId, k ->
-                initEmptyAnswers(active.getQuestions().size()));
-
-        if (parsed.qIndex < 0 || parsed.qIndex >= bucket.size()) {
+        int questionCount = active.getQuestions().size();
+        if (qIndex >= questionCount) {
             answerCallback(callbackId, "Invalid question. ");
             return;
         }
-        int maxOpt = active.getQuestions().get(parsed.qIndex).getOptions().size() - 1;
-        if (parsed.optIndex < 0 || parsed.optIndex > maxOpt) {
+        int maxOpt = active.getQuestions().get(qIndex).getOptions().size() - 1;
+        if (optIndex > maxOpt) {
             answerCallback(callbackId, "Invalid option. ");
             return;
         }
 
-        bucket.set(parsed.qIndex, parsed.optIndex);
-        answerCallback(callbackId, " A choice has been made " + (parsed.optIndex + 1) + " in question " + (parsed.qIndex + 1));
+        long state = partialAnswers.computeIfAbsent(active.getId(), k -> new ConcurrentLongLongMap())
+                .update(userId, s -> PartialAnswers.withAnswer(s, qIndex, optIndex));
+        answerCallback(callbackId,  " A choice has been made " + (optIndex + 1) + " in question " + (qIndex + 1));
+
+        List<Integer> complete = PartialAnswers.isComplete(state, questionCount)
+                ? PartialAnswers.answers(state, questionCount)
+                : null;
 
-        if (!bucket.contains(null)) {
-            boolean ok = active.collectResponse(u, bucket);
+        if (complete != null) {
+            boolean ok = active.collectResponse(u, complete);
             if (ok) {
+                Metrics.VOTES.increment();
                 sendText(userId, "Thank you! Answer recieved. ");
-                if (active.getResponses().size() == community.getSize()) {
-                    surveyManager.closeSurveyIfOpen(active);
-                    sendResultsToCreator(active);
+                if (active.getResponseCount() >= owner.getSize()) {
+                    surveyManager.closeSurveyIfOpen(active); // the close listener sends the results
                 }
             } else {
                 sendText(userId, "Can't submit answer now, maybe survey has closed. ");
@@ -141,100 +261,102 @@ public class TelegramSurveyBot extends TelegramLongPollingBot {
         }
     }
 
-    public void sendSurveyToCommunity(Survey survey, int autoCloseMinutes) {
-        if (survey == null || !survey.isActive()) return;
+    public CompletableFuture<FanOutReport> sendSurveyToCommunity(Survey survey, int autoCloseMinutes) {
+        return sendSurveyToCommunity(survey, autoCloseMinutes, null);
+    }
 
-        partialAnswers.clear();
+    public CompletableFuture<FanOutReport> sendSurveyToCommunity(Survey survey, int autoCloseMinutes,
+                                                                 Consumer<FanOutReport> progress) {
+        if (survey == null || !survey.isActive()) {
+            return CompletableFuture.completedFuture(new FanOutReport(0, 0, 0, 0, 0));
+        }
+
+        Community target = registry.communityOf(survey);
+        if (target == null) target = community;
 
         String header = "📣 A new survey has opened\n" +
                 "⏱ Answering time until " + autoCloseMinutes + " minutes.\n" +
                 "Please answer all questions (Press a button for each question.)";
 
-        for (User u : community.getMembers()) {
-            sendText(u.getTelegramId(), header);
-            partialAnswers.put(u.getTelegramId(), initEmptyAnswers(survey.getQuestions().size()));
-            for (int qi = 0; qi < survey.getQuestions().size(); qi++) {
-                sendQuestion(u.getTelegramId(), survey, qi);
-            }
-        }
-
-        surveyManager.scheduleSurveyClose(survey, autoCloseMinutes);
+        List<User> members = target.getMembers();
+        RenderedSurvey rendered = renderedSurveys.computeIfAbsent(survey.getId(), id -> RenderedSurvey.of(survey));
 
-        new java.util.Timer(true).schedule(new java.util.TimerTask() {
-            @Override public void run() {
-                if (survey.isActive()) {
-                    surveyManager.closeSurveyIfOpen(survey);
-                    sendResultsToCreator(survey);
-                }
+        return fanOut.dispatch(members, u -> {
+            List<SendMessage> out = new ArrayList<>(rendered.questionCount() + 1);
+            out.add(textMessage(u.getTelegramId(), header));
+            for (int qi = 0; qi < rendered.questionCount(); qi++) {
+                out.add(rendered.question(u.getTelegramId(), qi));
+            }
+            return out;
+        }, progress).whenComplete((report, err) -> {
+            // the answering window starts once the last member actually has the questions
+            surveyManager.scheduleSurveyClose(survey, autoCloseMinutes);
+            if (autoCloseMinutes > 1) {
+                surveyManager.scheduleReminder(survey, autoCloseMinutes - 1, TimeUnit.MINUTES,
+                        () -> remindPending(survey));
             }
-        }, autoCloseMinutes * 60L * 1000L);
+        });
     }
 
-    private void sendQuestion(long chatId, Survey survey, int qIndex) {
-        Question q = survey.getQuestions().get(qIndex);
-
-        String text = (qIndex + 1) + ") " + q.getText();
-        List<List<InlineKeyboardButton>> rows = new ArrayList<>();
-        List<InlineKeyboardButton> row = new ArrayList<>();
-        for (int i = 0; i < q.getOptions().size(); i++) {
-            String opt = q.getOptions().get(i);
-            InlineKeyboardButton b = InlineKeyboardButton.builder()
-                    .text((i + 1) + ". " + opt)
-                    .callbackData("sv|" + survey.getId() + "|q|" + qIndex + "|o|" + i)
-                    .build();
-            row.add(b);
+    private void remindPending(Survey survey) {
+        Community target = registry.communityOf(survey);
+        if (target == null) return;
+        List<User> pending = new ArrayList<>();
+        for (User u : target.getMembers()) {
+            if (!survey.hasResponded(u.getTelegramId())) pending.add(u);
         }
-        rows.add(row);
-        InlineKeyboardMarkup kb = InlineKeyboardMarkup.builder().keyboard(rows).build();
-
-        SendMessage sm = SendMessage.builder()
-                .chatId(String.valueOf(chatId))
-                .text(text)
-                .replyMarkup(kb)
-                .build();
-        exec(sm);
+        fanOut.dispatch(pending,
+                u -> List.of(textMessage(u.getTelegramId(), "⏰ One minute left to answer the survey!")),
+                null);
     }
 
     private void sendResultsToCreator(Survey survey) {
-        SurveyResult result = new SurveyResult(survey);
+        ResultsSnapshot results = survey.getResults();
         StringBuilder sb = new StringBuilder("📊Survey results: ").append(survey.getId());
-        for (Question q : survey.getQuestions()) {
+        for (ResultsSnapshot.QuestionResult q : results.getQuestions()) {
             sb.append("\n\nQuestion: ").append(q.getText());
-            q.getResultsPercent().entrySet().stream()
-                    .sorted((a, b) -> Double.compare(b.getValue(), a.getValue()))
-                    .forEach(e -> sb.append("\n - ").append(e.getKey()).append(": ").append(e.getValue()).append("%"));
+            for (int rank = 0; rank < q.getOptionCount(); rank++) {
+                int i = q.getRankedOption(rank);
+                sb.append("\n - ").append(q.getOptions().get(i)).append(": ").append(q.getPercent(i)).append("%");
+            }
         }
         long creatorId = survey.getCreator().getTelegramId();
         sendText(creatorId, sb.toString());
     }
 
     private void sendText(long chatId, String text) {
-        exec(SendMessage.builder().chatId(String.valueOf(chatId)).text(text).build());
+        exec(textMessage(chatId, text));
     }
 
-    private void broadcastToAllExcept(String text, long exceptId) {
-        for (User m : community.getMembers()) {
-            if (m.getTelegramId() != exceptId) sendText(m.getTelegramId(), text);
-        }
+    private static SendMessage textMessage(long chatId, String text) {
+        return SendMessage.builder().chatId(String.valueOf(chatId)).text(text).build();
     }
 
+    // a lost callback answer only leaves the button spinning for a while, so it isn't retried
     private void answerCallback(String callbackId, String text) {
+        long start = System.nanoTime();
         try {
             execute(AnswerCallbackQuery.builder().callbackQueryId(callbackId).text(text).showAlert(false).build());
-        } catch (Exception ignored) {}
+        } catch (TelegramApiRequestException e) {
+            Metrics.telegramErrors("AnswerCallbackQuery", e.getErrorCode() != null && e.getErrorCode() == 429 ? "rate_limited" : "api").increment();
+            LOG.log(System.Logger.Level.DEBUG, "answerCallbackQuery failed: " + e.getMessage());
+        } catch (Exception e) {
+            Metrics.telegramErrors("AnswerCallbackQuery", "other").increment();
+            LOG.log(System.Logger.Level.DEBUG, "answerCallbackQuery failed: " + e.getMessage());
+        } finally {
+            Metrics.TELEGRAM_ANSWER_CALLBACK.recordSince(start);
+        }
     }
 
+    // the sender already counted the failure; this only reports it
     private void exec(SendMessage sm) {
-        try { execute(sm); } catch (Exception e) { e.printStackTrace(); }
-    }
-
-    private User findUser(long telegramId) {
-        for (User u : community.getMembers()) if (u.getTelegramId() == telegramId) return u;
-        return null;
-    }
-
-    private static List<Integer> initEmptyAnswers(int count) {
-        return new ArrayList<>(Collections.nCopies(count, null));
+        try {
+            sender.send(sm);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOG.log(System.Logger.Level.WARNING, "Failed to send message to chat " + sm.getChatId(), e);
+        }
     }
 
     private static String displayName(User user) { return user.getName(); }
@@ -246,17 +368,4 @@ public class TelegramSurveyBot extends TelegramLongPollingBot {
         if (n.isBlank()) n = "User";
         return n.trim();
     }
-
-    private record ParsedData(String surveyId, int qIndex, int optIndex) {}
-
-    private ParsedData parseCallback(String data) {
-        try {
-            String[] t = data.split("\\|");
-            if (t.length != 6) return null;
-            if (!"sv".equals(t[0]) || !"q".equals(t[2]) || !"o".equals(t[4])) return null;
-            return new ParsedData(t[1], Integer.parseInt(t[3]), Integer.parseInt(t[5]));
-        } catch (Exception e) {
-            return null;
-        }
-    }
 }
@@ -0,0 +1,40 @@
+package org.example.bot;
+
+import java.util.concurrent.TimeUnit;
+
+public class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstToleranceNanos;
+    private long theoreticalArrival;
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate and burst must be positive. ");
+        }
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstToleranceNanos = intervalNanos * (burst - 1);
+        this.theoreticalArrival = System.nanoTime();
+    }
+
+    // GCRA: reserves the next permit and returns how long the caller has to wait for it.
+    public synchronized long reserve() {
+        long now = System.nanoTime();
+        long tat = Math.max(theoreticalArrival, now);
+        theoreticalArrival = tat + intervalNanos;
+        return Math.max(0L, tat - burstToleranceNanos - now);
+    }
+
+    public void acquire() throws InterruptedException {
+        long wait = reserve();
+        if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+    }
+
+    public synchronized void pauseFor(long nanos) {
+        theoreticalArrival = Math.max(theoreticalArrival, System.nanoTime() + nanos);
+    }
+
+    public synchronized boolean isIdle() {
+        return theoreticalArrival <= System.nanoTime();
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.bot;
+
+import org.example.metrics.Metrics;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Runs updates in parallel while keeping them in order per chat: every chat id gets a lane
+// that is drained by at most one virtual thread at a time. Lanes exist only while they
+// have work, and all lane state changes go through ConcurrentHashMap.compute.
+public class UpdateDispatcher {
+
+    private static final System.Logger LOG = System.getLogger(UpdateDispatcher.class.getName());
+
+    public record Stats(long submitted, long processed, long rejected, long blockedMillis,
+                        int pending, int activeLanes, int maxLaneDepth, long overflowed) {}
+
+    private static final class Lane {
+        final ArrayDeque<Update> queue = new ArrayDeque<>();
+    }
+
+    private final Consumer<Update> handler;
+    // updates that may use a lane's overflow once it is full (votes, joins)
+    private final Predicate<Update> mustDeliver;
+    private final int laneCapacity;
+    private final int overflowCapacity;
+    private final Semaphore pending;
+    private final int maxPending;
+    private final Map<Long, Lane> lanes = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+    private final LongAdder blockedNanos = new LongAdder();
+    private final AtomicInteger maxLaneDepth = new AtomicInteger();
+
+    public UpdateDispatcher(Consumer<Update> handler, int laneCapacity, int maxPending) {
+        this(handler, u -> false, laneCapacity, 0, maxPending);
+    }
+
+    public UpdateDispatcher(Consumer<Update> handler, Predicate<Update> mustDeliver, int laneCapacity,
+                            int overflowCapacity, int maxPending) {
+        this.handler = handler;
+        this.mustDeliver = mustDeliver;
+        this.laneCapacity = laneCapacity;
+        this.overflowCapacity = overflowCapacity;
+        this.maxPending = maxPending;
+        this.pending = new Semaphore(maxPending);
+    }
+
+    // Blocks the receiving thread only when too many updates are pending overall (backpressure
+    // towards Telegram), never for one chat: a chat that floods its own lane gets its extra
+    // updates rejected. mustDeliver updates may still go into the lane's overflow, which the
+    // lane's drainer empties in order like the rest; past that they are rejected as well.
+    // Returns false for a rejected update so the caller can have it redelivered or answered.
+    public boolean submit(Update update) {
+        if (!pending.tryAcquire()) {
+            long start = System.nanoTime();
+            pending.acquireUninterruptibly();
+            blockedNanos.add(System.nanoTime() - start);
+        }
+        submitted.increment();
+
+        long key = laneKey(update);
+        int limit = mustDeliver.test(update) ? laneCapacity + overflowCapacity : laneCapacity;
+        boolean[] accepted = {false};
+        boolean[] startDrain = {false};
+        lanes.compute(key, (k, lane) -> {
+            if (lane == null) {
+                lane = new Lane();
+                startDrain[0] = true;
+            }
+            if (lane.queue.size() < limit) {
+                if (lane.queue.size() >= laneCapacity) overflowed.increment();
+                lane.queue.addLast(update);
+                accepted[0] = true;
+                maxLaneDepth.accumulateAndGet(lane.queue.size(), Math::max);
+            }
+            return lane;
+        });
+
+        if (!accepted[0]) {
+            pending.release();
+            rejected.increment();
+            return false;
+        }
+        if (startDrain[0]) executor.execute(() -> drain(key));
+        return true;
+    }
+
+    private void drain(long key) {
+        Update[] next = new Update[1];
+        while (true) {
+            next[0] = null;
+            // an empty lane is removed atomically, so a concurrent submit starts a fresh drainer
+            lanes.compute(key, (k, lane) -> {
+                if (lane == null) return null;
+                next[0] = lane.queue.peekFirst();
+                return next[0] == null ? null : lane;
+            });
+            if (next[0] == null) return;
+            try {
+                handler.accept(next[0]);
+            } catch (RuntimeException e) {
+                // the lane must keep draining; the handler's own errors are counted by type there
+                Metrics.updateErrors("dispatch").increment();
+                LOG.log(System.Logger.Level.WARNING, "Update " + next[0].getUpdateId() + " handler threw", e);
+            } finally {
+                lanes.computeIfPresent(key, (k, lane) -> {
+                    lane.queue.pollFirst();
+                    return lane;
+                });
+                pending.release();
+                processed.increment();
+            }
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(submitted.sum(), processed.sum(), rejected.sum(),
+                blockedNanos.sum() / 1_000_000L, maxPending - pending.availablePermits(),
+                lanes.size(), maxLaneDepth.get(), overflowed.sum());
+    }
+
+    private static long laneKey(Update update) {
+        if (update.hasMessage()) return update.getMessage().getChatId();
+        if (update.hasCallbackQuery()) return update.getCallbackQuery().getFrom().getId();
+        if (update.hasEditedMessage()) return update.getEditedMessage().getChatId();
+        if (update.hasMyChatMember()) return update.getMyChatMember().getChat().getId();
+        if (update.hasChatMember()) return update.getChatMember().getChat().getId();
+        if (update.hasInlineQuery()) return update.getInlineQuery().getFrom().getId();
+        // no chat to stay in order with: one lane per update instead of one shared lane
+        return Long.MIN_VALUE + update.getUpdateId();
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.bot;
+
+import org.example.util.BotConfig;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Posts synthetic updates at a webhook endpoint and reports the achieved throughput.
+// Usage: WebhookLoadGenerator [url] [updates] [concurrency]
+// Point it at a WebhookServer whose sink is a stub: against the real bot the synthetic
+// "/start" messages would turn into real Bot API calls.
+public class WebhookLoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "http://localhost:" + BotConfig.WEBHOOK_PORT + BotConfig.WEBHOOK_PATH;
+        int total = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        AtomicLong nextId = new AtomicLong();
+        LongAdder ok = new LongAdder();
+        LongAdder failed = new LongAdder();
+
+        long start = System.nanoTime();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int w = 0; w < concurrency; w++) {
+                workers.execute(() -> {
+                    long id;
+                    while ((id = nextId.getAndIncrement()) < total) {
+                        HttpRequest req = HttpRequest.newBuilder(URI.create(url))
+                                .header("Content-Type", "application/json")
+                                .header(WebhookServer.SECRET_HEADER, BotConfig.WEBHOOK_SECRET)
+                                .POST(HttpRequest.BodyPublishers.ofString(syntheticUpdate(id)))
+                                .build();
+                        try {
+                            int status = client.send(req, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            if (status == 200) ok.increment(); else failed.increment();
+                        } catch (Exception e) {
+                            failed.increment();
+                        }
+                    }
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d ok, %d failed in %.2f s -> %.0f updates/s%n",
+                ok.sum(), failed.sum(), seconds, ok.sum() / seconds);
+    }
+
+    private static String syntheticUpdate(long id) {
+        long chatId = 1_000_000L + (id % 5_000);
+        return "{\"update_id\":" + id + ",\"message\":{\"message_id\":" + id +
+                ",\"date\":0,\"chat\":{\"id\":" + chatId + ",\"type\":\"private\"}" +
+                ",\"from\":{\"id\":" + chatId + ",\"is_bot\":false,\"first_name\":\"Load\"}" +
+                ",\"text\":\"/start\"}}";
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.bot;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+// Receives Telegram webhook calls on the JDK's built-in (NIO based) HTTP server and feeds
+// them into the same handler chain as long polling. Telegram only needs a 200 back, so the
+// update is handed off before the handler runs. The sink returns false when it can't take the
+// update (its lane is full); that is answered with 503 so Telegram delivers it again later.
+public class WebhookServer {
+
+    public static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    public record Stats(long accepted, long unauthorized, long malformed, long refused) {}
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final HttpServer server;
+    private final byte[] secret;
+    private final Predicate<Update> sink;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder unauthorized = new LongAdder();
+    private final LongAdder malformed = new LongAdder();
+    private final LongAdder refused = new LongAdder();
+
+    public WebhookServer(int port, String path, String secret, Predicate<Update> sink) throws IOException {
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.sink = sink;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.server.createContext(path, this::handle);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public void start() { server.start(); }
+
+    public void stop() { server.stop(0); }
+
+    public int getPort() { return server.getAddress().getPort(); }
+
+    public Stats getStats() {
+        return new Stats(accepted.sum(), unauthorized.sum(), malformed.sum(), refused.sum());
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try (ex; InputStream body = ex.getRequestBody()) {
+            if (!"POST".equals(ex.getRequestMethod())) {
+                ex.sendResponseHeaders(405, -1);
+                return;
+            }
+            String token = ex.getRequestHeaders().getFirst(SECRET_HEADER);
+            if (token == null || !MessageDigest.isEqual(secret, token.getBytes(StandardCharsets.UTF_8))) {
+                unauthorized.increment();
+                ex.sendResponseHeaders(401, -1);
+                return;
+            }
+            Update update;
+            try {
+                update = MAPPER.readValue(body, Update.class);
+            } catch (IOException e) {
+                malformed.increment();
+                ex.sendResponseHeaders(400, -1);
+                return;
+            }
+            if (!sink.test(update)) {
+                refused.increment();
+                ex.sendResponseHeaders(503, -1);
+                return;
+            }
+            accepted.increment();
+            ex.sendResponseHeaders(200, -1);
+        }
+    }
+}
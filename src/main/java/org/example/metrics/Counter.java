@@ -0,0 +1,22 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public final class Counter {
+
+    private final LongAdder value = new LongAdder();
+
+    Counter() {}
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long n) {
+        value.add(n);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+}
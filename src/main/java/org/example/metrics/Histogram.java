@@ -0,0 +1,67 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency histogram with fixed buckets (seconds, Prometheus style). Recording is a short scan
+// over the bounds plus three striped adds, so it is safe on every update/send/call path.
+public final class Histogram {
+
+    static final double[] BOUNDS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5,
+            1, 2.5, 5, 10, 30, 60};
+    private static final long[] BOUND_NANOS = new long[BOUNDS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS.length; i++) BOUND_NANOS[i] = (long) (BOUNDS[i] * 1e9);
+    }
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1]; // last one is +Inf
+    private final LongAdder sumNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    Histogram() {
+        for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+    }
+
+    public void record(long nanos) {
+        int i = 0;
+        while (i < BOUND_NANOS.length && nanos > BOUND_NANOS[i]) i++;
+        buckets[i].increment();
+        sumNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        long n = 0;
+        for (LongAdder b : buckets) n += b.sum();
+        return n;
+    }
+
+    public double getSumSeconds() {
+        return sumNanos.sum() / 1e9;
+    }
+
+    public double getMaxSeconds() {
+        return maxNanos.get() / 1e9;
+    }
+
+    public double getMeanMillis() {
+        long n = getCount();
+        return n == 0 ? 0 : sumNanos.sum() / 1e6 / n;
+    }
+
+    // cumulative counts per bound, +Inf last
+    long[] cumulativeCounts() {
+        long[] out = new long[buckets.length];
+        long running = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            running += buckets[i].sum();
+            out[i] = running;
+        }
+        return out;
+    }
+}
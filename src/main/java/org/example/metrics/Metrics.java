@@ -0,0 +1,64 @@
+package org.example.metrics;
+
+// The process-wide registry and the instruments the hot paths record into. Instruments are
+// created here once so recording never does a lookup; only error paths with open-ended
+// labels (failure codes) go through the registry.
+public final class Metrics {
+
+    public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    // incoming updates, by type
+    public static final Histogram UPDATE_MESSAGE = updateLatency("message");
+    public static final Histogram UPDATE_CALLBACK = updateLatency("callback");
+    public static final Histogram UPDATE_OTHER = updateLatency("other");
+
+    // Bot API calls (time inside execute, not waiting for the rate limiter)
+    public static final Histogram TELEGRAM_SEND_MESSAGE = telegramLatency("SendMessage");
+    public static final Histogram TELEGRAM_ANSWER_CALLBACK = telegramLatency("AnswerCallbackQuery");
+
+    public static final Counter FANOUT_SENT = REGISTRY.counter("bot_fanout_messages_total",
+            "Messages delivered by survey fan-outs and reminders", "result", "sent");
+    public static final Counter FANOUT_FAILED = REGISTRY.counter("bot_fanout_messages_total",
+            "Messages delivered by survey fan-outs and reminders", "result", "failed");
+
+    public static final Counter VOTES = REGISTRY.counter("survey_responses_total",
+            "Completed survey responses accepted");
+
+    public static final Counter CACHE_WRITE_FAILURES = REGISTRY.counter("survey_cache_write_failures_total",
+            "Failed rewrites of the AI survey cache file");
+
+    // LLM endpoint, whole call including retries
+    public static final Histogram LLM_SEND_MESSAGE = llmLatency("send-message");
+    public static final Histogram LLM_CHECK_BALANCE = llmLatency("check-balance");
+    public static final Histogram LLM_CLEAR_HISTORY = llmLatency("clear-history");
+
+    private Metrics() {}
+
+    public static Counter updateErrors(String type) {
+        return REGISTRY.counter("bot_update_errors_total", "Updates whose handler threw", "type", type);
+    }
+
+    // reason: rate_limited (429), api (other Bot API error) or other (network, serialization)
+    public static Counter telegramErrors(String method, String reason) {
+        return REGISTRY.counter("telegram_execute_errors_total", "Failed Bot API calls",
+                "method", method, "reason", reason);
+    }
+
+    public static Counter llmFailures(String endpoint, String code) {
+        String c = code == null || code.isBlank() ? "UNKNOWN" : code.length() > 40 ? code.substring(0, 40) : code;
+        return REGISTRY.counter("llm_failures_total", "LLM calls that did not succeed, by error code",
+                "endpoint", endpoint, "code", c);
+    }
+
+    private static Histogram updateLatency(String type) {
+        return REGISTRY.histogram("bot_update_duration_seconds", "Time to handle one incoming update", "type", type);
+    }
+
+    private static Histogram telegramLatency(String method) {
+        return REGISTRY.histogram("telegram_execute_duration_seconds", "Bot API call latency", "method", method);
+    }
+
+    private static Histogram llmLatency(String endpoint) {
+        return REGISTRY.histogram("llm_request_duration_seconds", "LLM endpoint call latency", "endpoint", endpoint);
+    }
+}
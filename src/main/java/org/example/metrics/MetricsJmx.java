@@ -0,0 +1,111 @@
+package org.example.metrics;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+// JMX view of the registry (visible in jconsole / VisualVM under org.example:type=Metrics).
+// Rates are computed when read, over the time since the previous read (at least a second).
+public class MetricsJmx implements MetricsMXBean {
+
+    public static final String OBJECT_NAME = "org.example:type=Metrics";
+
+    private final MetricsRegistry registry;
+    private final Rate votes = new Rate();
+    private final Rate fanOut = new Rate();
+
+    public MetricsJmx(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    public static void register(MetricsRegistry registry) throws Exception {
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        var server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(name)) server.unregisterMBean(name);
+        server.registerMBean(new MetricsJmx(registry), name);
+    }
+
+    @Override
+    public Map<String, Double> getValues() {
+        return registry.values();
+    }
+
+    @Override
+    public double getVotesPerSecond() {
+        return votes.read(Metrics.VOTES.get());
+    }
+
+    @Override
+    public double getFanOutSendsPerSecond() {
+        return fanOut.read(Metrics.FANOUT_SENT.get());
+    }
+
+    @Override
+    public long getUpdatesHandled() {
+        return Metrics.UPDATE_MESSAGE.getCount() + Metrics.UPDATE_CALLBACK.getCount() + Metrics.UPDATE_OTHER.getCount();
+    }
+
+    @Override
+    public long getUpdateErrors() {
+        return sum("bot_update_errors_total");
+    }
+
+    @Override
+    public double getUpdateMeanMillis() {
+        return mean(Metrics.UPDATE_MESSAGE, Metrics.UPDATE_CALLBACK, Metrics.UPDATE_OTHER);
+    }
+
+    @Override
+    public double getTelegramExecuteMeanMillis() {
+        return mean(Metrics.TELEGRAM_SEND_MESSAGE, Metrics.TELEGRAM_ANSWER_CALLBACK);
+    }
+
+    @Override
+    public long getTelegramExecuteErrors() {
+        return sum("telegram_execute_errors_total");
+    }
+
+    @Override
+    public double getLlmMeanMillis() {
+        return mean(Metrics.LLM_SEND_MESSAGE, Metrics.LLM_CHECK_BALANCE, Metrics.LLM_CLEAR_HISTORY);
+    }
+
+    @Override
+    public long getLlmFailures() {
+        return sum("llm_failures_total");
+    }
+
+    private long sum(String family) {
+        long n = 0;
+        for (Map.Entry<String, Double> e : registry.values().entrySet()) {
+            if (e.getKey().startsWith(family)) n += e.getValue().longValue();
+        }
+        return n;
+    }
+
+    private static double mean(Histogram... hs) {
+        long n = 0;
+        double sum = 0;
+        for (Histogram h : hs) {
+            n += h.getCount();
+            sum += h.getSumSeconds();
+        }
+        return n == 0 ? 0 : sum * 1000 / n;
+    }
+
+    private static final class Rate {
+        private long lastCount;
+        private long lastNanos = System.nanoTime();
+        private double rate;
+
+        synchronized double read(long count) {
+            long now = System.nanoTime();
+            if (now - lastNanos >= 1_000_000_000L) {
+                rate = (count - lastCount) / ((now - lastNanos) / 1e9);
+                lastCount = count;
+                lastNanos = now;
+            }
+            return rate;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.metrics;
+
+import java.util.Map;
+
+public interface MetricsMXBean {
+
+    // every series in the registry, as name{labels} -> value
+    Map<String, Double> getValues();
+
+    double getVotesPerSecond();
+
+    double getFanOutSendsPerSecond();
+
+    long getUpdatesHandled();
+
+    long getUpdateErrors();
+
+    double getUpdateMeanMillis();
+
+    double getTelegramExecuteMeanMillis();
+
+    long getTelegramExecuteErrors();
+
+    double getLlmMeanMillis();
+
+    long getLlmFailures();
+}
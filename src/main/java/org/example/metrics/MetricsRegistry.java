@@ -0,0 +1,140 @@
+package org.example.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+
+// Named metric families, each with one series per label set. Lookups happen once, when a
+// caller creates its instrument (usually a static field); recording then only touches the
+// instrument's own adders. Function counters and gauges are read at scrape time.
+public class MetricsRegistry {
+
+    enum Type { COUNTER, GAUGE, HISTOGRAM }
+
+    private static final class Family {
+        final String name;
+        final String help;
+        final Type type;
+        final Map<String, Object> series = new ConcurrentHashMap<>(); // rendered labels -> instrument
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private final Map<String, Family> families = new ConcurrentHashMap<>();
+
+    // labels are key/value pairs: counter("x_total", "...", "method", "SendMessage")
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, Type.COUNTER).series.computeIfAbsent(labels(labels), k -> new Counter());
+    }
+
+    public Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) family(name, help, Type.HISTOGRAM).series.computeIfAbsent(labels(labels), k -> new Histogram());
+    }
+
+    // a counter owned by someone else (e.g. a component's own LongAdder), read when scraped
+    public void functionCounter(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.COUNTER).series.put(labels(labels), value);
+    }
+
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).series.put(labels(labels), value);
+    }
+
+    // Prometheus text exposition format 0.0.4
+    public String scrape() {
+        StringBuilder sb = new StringBuilder(4096);
+        for (Family f : new TreeMap<>(families).values()) {
+            sb.append("# HELP ").append(f.name).append(' ').append(f.help).append('\n');
+            sb.append("# TYPE ").append(f.name).append(' ').append(f.type.name().toLowerCase()).append('\n');
+            for (Map.Entry<String, Object> e : new TreeMap<>(f.series).entrySet()) {
+                String labels = e.getKey();
+                Object s = e.getValue();
+                if (s instanceof Histogram h) {
+                    long[] counts = h.cumulativeCounts();
+                    for (int i = 0; i < counts.length; i++) {
+                        String le = i < Histogram.BOUNDS.length ? format(Histogram.BOUNDS[i]) : "+Inf";
+                        sb.append(f.name).append("_bucket").append(withLabel(labels, "le", le))
+                                .append(' ').append(counts[i]).append('\n');
+                    }
+                    sb.append(f.name).append("_sum").append(labels).append(' ').append(format(h.getSumSeconds())).append('\n');
+                    sb.append(f.name).append("_count").append(labels).append(' ').append(counts[counts.length - 1]).append('\n');
+                } else {
+                    sb.append(f.name).append(labels).append(' ').append(format(value(s))).append('\n');
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    // flat name{labels} -> value view (histograms as _count, _sum and _max), for JMX
+    public Map<String, Double> values() {
+        Map<String, Double> out = new LinkedHashMap<>();
+        for (Family f : new TreeMap<>(families).values()) {
+            for (Map.Entry<String, Object> e : new TreeMap<>(f.series).entrySet()) {
+                if (e.getValue() instanceof Histogram h) {
+                    out.put(f.name + "_count" + e.getKey(), (double) h.getCount());
+                    out.put(f.name + "_sum" + e.getKey(), h.getSumSeconds());
+                    out.put(f.name + "_max" + e.getKey(), h.getMaxSeconds());
+                } else {
+                    out.put(f.name + e.getKey(), value(e.getValue()));
+                }
+            }
+        }
+        return out;
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family f = families.computeIfAbsent(name, n -> new Family(n, help, type));
+        if (f.type != type) throw new IllegalArgumentException("Metric " + name + " is already a " + f.type + ". ");
+        return f;
+    }
+
+    private static double value(Object series) {
+        if (series instanceof Counter c) return c.get();
+        try {
+            return ((DoubleSupplier) series).getAsDouble();
+        } catch (RuntimeException e) {
+            return Double.NaN; // a broken gauge must not break the whole scrape
+        }
+    }
+
+    private static String labels(String[] kv) {
+        if (kv.length == 0) return "";
+        if (kv.length % 2 != 0) throw new IllegalArgumentException("Labels must be key/value pairs. ");
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < kv.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append(kv[i]).append("=\"");
+            escape(kv[i + 1], sb);
+            sb.append('"');
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String withLabel(String labels, String key, String value) {
+        String pair = key + "=\"" + value + "\"";
+        return labels.isEmpty() ? "{" + pair + "}" : labels.substring(0, labels.length() - 1) + "," + pair + "}";
+    }
+
+    private static void escape(String v, StringBuilder sb) {
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            if (c == '\\' || c == '"') sb.append('\\').append(c);
+            else if (c == '\n') sb.append("\\n");
+            else sb.append(c);
+        }
+    }
+
+    private static String format(double v) {
+        if (Double.isNaN(v)) return "NaN";
+        if (Double.isInfinite(v)) return v > 0 ? "+Inf" : "-Inf";
+        if (v == Math.rint(v) && Math.abs(v) < 1e15) return Long.toString((long) v);
+        return Double.toString(v);
+    }
+}
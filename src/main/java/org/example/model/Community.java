@@ -4,23 +4,41 @@ import org.example.util.BotConfig;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Community {
 
-    private List<User> members;
-    private Survey activeSurvey;
+    public static final long DEFAULT_ID = 0L;
+
+    private final long id;
+    private final MemberIndex members;
+    // open surveys of this community by id; several may overlap
+    private final Map<String, Survey> surveys = new ConcurrentHashMap<>();
+    private volatile Survey activeSurvey;
+    private volatile Journal journal = Journal.NONE;
 
     public Community() {
-        this.members = new ArrayList<>();
+        this(DEFAULT_ID);
+    }
+
+    public Community(long id) {
+        this.id = id;
+        this.members = new MemberIndex();
         this.activeSurvey = null;
     }
 
+    public long getId() { return id; }
+
     public boolean addMember(User user) {
-        if (!members.contains(user)) {
-            members.add(user);
-            return true;
-        }
-        return false;
+        checkWritable();
+        if (!members.add(user)) return false;
+        journal.memberJoined(user);
+        return true;
+    }
+
+    public User findMember(long telegramId) {
+        return members.get(telegramId);
     }
 
     public int getSize() {
@@ -33,36 +51,75 @@ public class Community {
 
     public void notifyAllMembers(String message) {
         System.out.println("📢 Message to community: " + message);
-        for (User user : members) {
+        for (User user : members.snapshot()) {
             System.out.println("Sent to " + user.getName());
         }
     }
 
     public boolean hasActiveSurvey() {
-        return activeSurvey != null && activeSurvey.isActive();
+        for (Survey s : surveys.values()) {
+            if (s.isActive()) return true;
+        }
+        return false;
     }
 
+    // The most recently created survey, open or not (what the console shows).
     public Survey getActiveSurvey() {
         return activeSurvey;
     }
 
+    public List<Survey> getActiveSurveys() {
+        List<Survey> out = new ArrayList<>(surveys.size());
+        for (Survey s : surveys.values()) {
+            if (s.isActive()) out.add(s);
+        }
+        return out;
+    }
+
+    public Survey findSurvey(String surveyId) {
+        return surveys.get(surveyId);
+    }
+
+    // Published before it is journaled: a compaction running in between then already has the
+    // survey in its snapshot (the SURVEY event replays idempotently after it), instead of
+    // missing it and truncating the log past that event.
     public void setActiveSurvey(Survey survey) {
+        checkWritable();
+        survey.attach(id, journal);
+        surveys.put(survey.getId(), survey);
         this.activeSurvey = survey;
+        journal.surveyCreated(survey);
+    }
+
+    private void checkWritable() {
+        if (!journal.isWritable()) throw new IllegalStateException("Community " + id + " can't be saved right now. ");
+    }
+
+    // Forgets a closed survey; the latest one stays reachable through getActiveSurvey().
+    public void retireSurvey(Survey survey) {
+        surveys.remove(survey.getId(), survey);
+    }
+
+    public void setJournal(Journal journal) {
+        this.journal = journal != null ? journal : Journal.NONE;
+        for (Survey s : surveys.values()) s.attach(id, this.journal);
     }
 
     public void clearActiveSurvey() {
         this.activeSurvey = null;
     }
 
+    // Point-in-time view: safe to iterate while new members keep joining.
     public List<User> getMembers() {
-        return members;
+        return members.snapshot();
     }
 
     @Override
     public String toString() {
         return "Community{" +
-                "members=" + members.size() +
-                ", activeSurvey=" + (activeSurvey != null ? "Yes" : "No") +
+                "id=" + id +
+                ", members=" + members.size() +
+                ", activeSurveys=" + getActiveSurveys().size() +
                 '}';
     }
 }
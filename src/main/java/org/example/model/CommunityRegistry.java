@@ -0,0 +1,57 @@
+package org.example.model;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// All communities served by this bot process and every open survey, keyed by id, so a
+// button press is routed from the survey id in its callback data in O(1). Both maps are
+// ConcurrentHashMaps (lock-striped per bin); each community keeps its own members,
+// surveys and locks, so unrelated communities never contend with each other.
+public class CommunityRegistry {
+
+    private final Map<Long, Community> communities = new ConcurrentHashMap<>();
+    private final Map<String, Survey> surveys = new ConcurrentHashMap<>();
+    // callback buttons carry the 48-bit handle instead of the full id (see CallbackCodec)
+    private final Map<Long, Survey> surveysByHandle = new ConcurrentHashMap<>();
+
+    public void register(Community community) {
+        communities.put(community.getId(), community);
+        for (Survey s : community.getActiveSurveys()) registerSurvey(s);
+    }
+
+    public Community find(long communityId) {
+        return communities.get(communityId);
+    }
+
+    public Collection<Community> getCommunities() {
+        return communities.values();
+    }
+
+    public void registerSurvey(Survey survey) {
+        Survey clash = surveysByHandle.putIfAbsent(survey.getHandle(), survey);
+        if (clash != null && clash != survey) {
+            throw new IllegalStateException("Survey handle collision: " + survey.getId() + " / " + clash.getId() + ". ");
+        }
+        surveys.put(survey.getId(), survey);
+    }
+
+    public void retireSurvey(Survey survey) {
+        surveys.remove(survey.getId(), survey);
+        surveysByHandle.remove(survey.getHandle(), survey);
+        Community c = communityOf(survey);
+        if (c != null) c.retireSurvey(survey);
+    }
+
+    public Survey findSurvey(String surveyId) {
+        return surveyId != null ? surveys.get(surveyId) : null;
+    }
+
+    public Survey findSurveyByHandle(long handle) {
+        return surveysByHandle.get(handle);
+    }
+
+    public Community communityOf(Survey survey) {
+        return communities.get(survey.getCommunityId());
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.model;
+
+import java.util.List;
+
+// Receives every state change of a community so it can be made durable.
+public interface Journal {
+
+    Journal NONE = new Journal() {};
+
+    // false once changes can no longer be made durable; callers refuse new state then
+    default boolean isWritable() { return true; }
+
+    default void memberJoined(User user) {}
+    default void surveyCreated(Survey survey) {}
+    default void surveyScheduled(Survey survey) {}
+    default void responseCollected(Survey survey, long telegramId, List<Integer> answers) {}
+    default void surveyClosed(Survey survey) {}
+}
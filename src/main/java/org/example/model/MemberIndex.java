@@ -0,0 +1,144 @@
+package org.example.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.locks.StampedLock;
+
+// Open-addressing telegramId -> User map. Lookups are optimistic and lock-free on the
+// happy path; inserts take the write lock. Members are append-only, so a snapshot is
+// just the current (array, size) pair and never has to be copied.
+class MemberIndex {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final long EMPTY = 0L;
+
+    private final StampedLock lock = new StampedLock();
+    private Table table = new Table(MIN_CAPACITY);
+    private User zeroKeyUser;
+    private User[] order = new User[MIN_CAPACITY];
+    private int size;
+
+    User get(long telegramId) {
+        long stamp = lock.tryOptimisticRead();
+        User u = lookup(telegramId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                u = lookup(telegramId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return u;
+    }
+
+    boolean add(User user) {
+        long id = user.getTelegramId();
+        long stamp = lock.writeLock();
+        try {
+            if (id == EMPTY) {
+                if (zeroKeyUser != null) return false;
+                zeroKeyUser = user;
+            } else {
+                if (table.find(id) != null) return false;
+                if ((size + 1) * 2 > table.keys.length) table = table.grow();
+                table.insert(id, user);
+            }
+            if (size == order.length) order = Arrays.copyOf(order, size * 2);
+            order[size++] = user;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        long stamp = lock.tryOptimisticRead();
+        int n = size;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                n = size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return n;
+    }
+
+    List<User> snapshot() {
+        long stamp = lock.readLock();
+        try {
+            return new Snapshot(order, size);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private User lookup(long id) {
+        return id == EMPTY ? zeroKeyUser : table.find(id);
+    }
+
+    private static final class Table {
+        final long[] keys;
+        final User[] values;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new User[capacity];
+            mask = capacity - 1;
+        }
+
+        // Probes are bounded by the capacity so a torn optimistic read can't spin forever.
+        User find(long id) {
+            int i = mix(id) & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                long k = keys[i];
+                if (k == id) return values[i];
+                if (k == EMPTY) return null;
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        void insert(long id, User user) {
+            int i = mix(id) & mask;
+            while (keys[i] != EMPTY) i = (i + 1) & mask;
+            values[i] = user;
+            keys[i] = id;
+        }
+
+        Table grow() {
+            Table t = new Table(keys.length * 2);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY) t.insert(keys[i], values[i]);
+            }
+            return t;
+        }
+
+        private static int mix(long id) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    private static final class Snapshot extends AbstractList<User> implements RandomAccess {
+        private final User[] users;
+        private final int size;
+
+        Snapshot(User[] users, int size) {
+            this.users = users;
+            this.size = size;
+        }
+
+        @Override public User get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+            return users[index];
+        }
+
+        @Override public int size() { return size; }
+    }
+}
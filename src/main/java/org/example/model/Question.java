@@ -1,52 +1,77 @@
 package org.example.model;
 
-import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Question {
 
     private final String text;
     private final List<String> options;
-    private final Map<String, Integer> results;
+    // One striped counter per option position: voting never allocates or takes a lock.
+    private final LongAdder[] tallies;
 
     public Question(String text, List<String> options) {
         this.text = text;
-        this.options = new ArrayList<>(options);
-        this.results = new LinkedHashMap<>();
-        for (String option : this.options) {
-            results.put(option, 0);
+        this.options = List.copyOf(options);
+        this.tallies = new LongAdder[this.options.size()];
+        for (int i = 0; i < tallies.length; i++) {
+            tallies[i] = new LongAdder();
         }
     }
 
-    public void addVote(String option) {
-        Integer count = results.get(option);
-        if (count != null) {
-            results.put(option, count + 1);
+    public void addVote(int optionIndex) {
+        if (optionIndex >= 0 && optionIndex < tallies.length) {
+            tallies[optionIndex].increment();
         }
     }
 
+    public void addVote(String option) {
+        addVote(options.indexOf(option));
+    }
+
+    public long getVotes(int optionIndex) {
+        return tallies[optionIndex].sum();
+    }
+
     public Map<String, Double> getResultsPercent() {
+        long[] counts = counts();
+        long totalVotes = 0;
+        for (long c : counts) totalVotes += c;
         Map<String, Double> percentMap = new LinkedHashMap<>();
-        int totalVotes = results.values().stream().mapToInt(Integer::intValue).sum();
-        for (Map.Entry<String, Integer> entry : results.entrySet()) {
-            double percent = totalVotes == 0 ? 0.0 : (entry.getValue() * 100.0 / totalVotes);
-            percentMap.put(entry.getKey(), Math.round(percent * 10) / 10.0);
+        for (int i = 0; i < counts.length; i++) {
+            double percent = totalVotes == 0 ? 0.0 : (counts[i] * 100.0 / totalVotes);
+            percentMap.put(options.get(i), Math.round(percent * 10) / 10.0);
         }
         return percentMap;
     }
 
     public String getText() { return text; }
     public List<String> getOptions() { return options; }
-    public Map<String, Integer> getResults() { return results; }
+
+    public Map<String, Integer> getResults() {
+        Map<String, Integer> results = new LinkedHashMap<>();
+        for (int i = 0; i < tallies.length; i++) {
+            results.put(options.get(i), (int) tallies[i].sum());
+        }
+        return results;
+    }
+
+    private long[] counts() {
+        long[] counts = new long[tallies.length];
+        for (int i = 0; i < tallies.length; i++) {
+            counts[i] = tallies[i].sum();
+        }
+        return counts;
+    }
 
     @Override
     public String toString() {
         return "Question{" +
                 "text='" + text + '\'' +
                 ", options=" + options +
-                ", results=" + results +
+                ", results=" + getResults() +
                 '}';
     }
 }
@@ -0,0 +1,142 @@
+package org.example.model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+
+// Off-heap open-addressing table holding one long per respondent:
+//   bits 8..62  telegramId   (Telegram ids have at most 52 significant bits)
+//   bits 0..7   2-bit option index per question, question 0 in the lowest bits
+// A zero slot is empty. Inserts CAS into the direct buffer under the shared side of a
+// StampedLock; only a resize takes the exclusive side. At 8 bytes per respondent a
+// million-respondent survey fits in 8-16 MB outside the Java heap.
+class ResponseStore {
+
+    static final int MAX_QUESTIONS = 4;
+    static final int MAX_OPTIONS = 4;
+
+    private static final VarHandle SLOT =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final long MAX_ID = (1L << 55) - 1;
+    private static final int MIN_CAPACITY = 1024;
+
+    interface Visitor {
+        void accept(long telegramId, int packedAnswers);
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private final AtomicInteger size = new AtomicInteger();
+    private ByteBuffer slots;
+    private int mask;
+
+    ResponseStore() {
+        allocate(MIN_CAPACITY);
+    }
+
+    // Returns false if the respondent is already stored.
+    boolean putIfAbsent(long telegramId, int packedAnswers) {
+        if (telegramId <= 0 || telegramId > MAX_ID) {
+            throw new IllegalArgumentException("telegramId out of range: " + telegramId);
+        }
+        long entry = (telegramId << 8) | (packedAnswers & 0xFF);
+        boolean inserted;
+        long stamp = lock.readLock();
+        try {
+            inserted = insert(slots, mask, entry);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        if (inserted && size.incrementAndGet() * 5L > (mask + 1L) * 4L) grow();
+        return inserted;
+    }
+
+    boolean contains(long telegramId) {
+        return get(telegramId) >= 0;
+    }
+
+    // Packed answers of a respondent, or -1 if absent.
+    int get(long telegramId) {
+        long stamp = lock.readLock();
+        try {
+            int i = mix(telegramId) & mask;
+            while (true) {
+                long v = (long) SLOT.getVolatile(slots, i << 3);
+                if (v == 0) return -1;
+                if ((v >>> 8) == telegramId) return (int) (v & 0xFF);
+                i = (i + 1) & mask;
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    void forEach(Visitor visitor) {
+        long stamp = lock.readLock();
+        try {
+            for (int i = 0; i <= mask; i++) {
+                long v = (long) SLOT.getVolatile(slots, i << 3);
+                if (v != 0) visitor.accept(v >>> 8, (int) (v & 0xFF));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    static int pack(int questionIndex, int optionIndex, int packed) {
+        return packed | (optionIndex << (questionIndex * 2));
+    }
+
+    static int unpack(int packed, int questionIndex) {
+        return (packed >>> (questionIndex * 2)) & 0b11;
+    }
+
+    private static boolean insert(ByteBuffer slots, int mask, long entry) {
+        long id = entry >>> 8;
+        int i = mix(id) & mask;
+        while (true) {
+            int offset = i << 3;
+            long v = (long) SLOT.getVolatile(slots, offset);
+            if (v == 0) {
+                if (SLOT.compareAndSet(slots, offset, 0L, entry)) return true;
+                continue; // lost the race for this slot: look at it again
+            }
+            if ((v >>> 8) == id) return false;
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void grow() {
+        long stamp = lock.writeLock();
+        try {
+            if (size.get() * 5L <= (mask + 1L) * 4L) return;
+            ByteBuffer old = slots;
+            int oldCapacity = mask + 1;
+            allocate(oldCapacity * 2);
+            for (int i = 0; i < oldCapacity; i++) {
+                long v = (long) SLOT.get(old, i << 3);
+                if (v != 0) insert(slots, mask, v);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void allocate(int capacity) {
+        slots = ByteBuffer.allocateDirect(capacity * Long.BYTES + Long.BYTES)
+                .alignedSlice(Long.BYTES)
+                .order(ByteOrder.nativeOrder());
+        mask = capacity - 1;
+    }
+
+    private static int mix(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+
+// Keeps the latest ResultsSnapshot of one survey. Votes only bump a version counter (the
+// per-option LongAdders in Question hold the counts); the snapshot is rebuilt at most once
+// per version, on the first read after it moved, and every other read returns it as is.
+// A rebuild holds the survey's close lock exclusively: votes add their tallies and bump the
+// version under its shared side, so the version, counts and response total always agree.
+final class ResultsAggregator {
+
+    private final Survey survey;
+    private final Lock exclusive;
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicReference<ResultsSnapshot> latest = new AtomicReference<>();
+
+    ResultsAggregator(Survey survey, Lock exclusive) {
+        this.survey = survey;
+        this.exclusive = exclusive;
+    }
+
+    void onResponse() {
+        version.incrementAndGet();
+    }
+
+    long version() {
+        return version.get();
+    }
+
+    ResultsSnapshot latest() {
+        long v = version.get();
+        ResultsSnapshot current = latest.get();
+        if (current != null && current.getVersion() >= v) return current;
+
+        ResultsSnapshot built;
+        exclusive.lock();
+        try {
+            built = build(version.get());
+        } finally {
+            exclusive.unlock();
+        }
+        // two readers may race to rebuild; never let the older one win
+        return latest.accumulateAndGet(built, (a, b) -> a == null || b.getVersion() > a.getVersion() ? b : a);
+    }
+
+    private ResultsSnapshot build(long v) {
+        List<Question> questions = survey.getQuestions();
+        List<ResultsSnapshot.QuestionResult> results = new ArrayList<>(questions.size());
+        for (Question q : questions) {
+            long[] counts = new long[q.getOptions().size()];
+            for (int i = 0; i < counts.length; i++) counts[i] = q.getVotes(i);
+            results.add(new ResultsSnapshot.QuestionResult(q.getText(), q.getOptions(), counts));
+        }
+        return new ResultsSnapshot(survey.getId(), v, survey.getResponseCount(), results);
+    }
+}
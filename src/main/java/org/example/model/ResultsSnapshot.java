@@ -0,0 +1,83 @@
+package org.example.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Immutable view of a survey's results at one point in time. version grows by one per
+// collected response and is taken together with the counts (see ResultsAggregator), so a
+// snapshot at version v holds exactly the first v responses: snapshots with the same version
+// are equal, and readers can skip redrawing / re-exporting while the version hasn't moved.
+public final class ResultsSnapshot {
+
+    private final String surveyId;
+    private final long version;
+    private final int responses;
+    private final List<QuestionResult> questions;
+
+    ResultsSnapshot(String surveyId, long version, int responses, List<QuestionResult> questions) {
+        this.surveyId = surveyId;
+        this.version = version;
+        this.responses = responses;
+        this.questions = List.copyOf(questions);
+    }
+
+    public String getSurveyId() { return surveyId; }
+    public long getVersion() { return version; }
+    public int getResponses() { return responses; }
+    public List<QuestionResult> getQuestions() { return questions; }
+
+    public static final class QuestionResult {
+
+        private final String text;
+        private final List<String> options;
+        private final long[] counts;
+        private final double[] percent;
+        private final int[] ranking;
+        private final long total;
+        private final Map<String, Double> percentByOption;
+
+        QuestionResult(String text, List<String> options, long[] counts) {
+            this.text = text;
+            this.options = options;
+            this.counts = counts;
+
+            long sum = 0;
+            for (long c : counts) sum += c;
+            this.total = sum;
+
+            this.percent = new double[counts.length];
+            Map<String, Double> byOption = new LinkedHashMap<>();
+            for (int i = 0; i < counts.length; i++) {
+                double p = sum == 0 ? 0.0 : counts[i] * 100.0 / sum;
+                percent[i] = Math.round(p * 10) / 10.0;
+                byOption.put(options.get(i), percent[i]);
+            }
+            this.percentByOption = Collections.unmodifiableMap(byOption);
+
+            // at most 4 options: insertion sort, most votes first, ties keep option order
+            this.ranking = new int[counts.length];
+            for (int i = 0; i < counts.length; i++) {
+                int j = i;
+                while (j > 0 && counts[ranking[j - 1]] < counts[i]) {
+                    ranking[j] = ranking[j - 1];
+                    j--;
+                }
+                ranking[j] = i;
+            }
+        }
+
+        public String getText() { return text; }
+        public List<String> getOptions() { return options; }
+        public int getOptionCount() { return counts.length; }
+        public long getCount(int optionIndex) { return counts[optionIndex]; }
+        public double getPercent(int optionIndex) { return percent[optionIndex]; }
+        public long getTotal() { return total; }
+
+        // option index at the given place, 0 = most votes
+        public int getRankedOption(int rank) { return ranking[rank]; }
+
+        public Map<String, Double> getPercentByOption() { return percentByOption; }
+    }
+}
@@ -1,58 +1,188 @@
 package org.example.model;
 
+import org.example.util.CallbackCodec;
+
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class Survey {
 
-    private String id;
-    private List<Question> questions;
-    private LocalDateTime startTime;
+    private final String id;
+    private final long handle;
+    private final List<Question> questions;
+    private final LocalDateTime startTime;
     private int durationMinutes = 5;
-    private boolean active;
-    private Map<Long, List<Integer>> responses;
-    private User creator;
+    private volatile boolean active;
+    private final ResponseStore responses;
+    private final ResultsAggregator results;
+    // called on the voting thread after each collected response; keep them cheap
+    private final List<Consumer<Survey>> voteListeners = new CopyOnWriteArrayList<>();
+    private final User creator;
+    // Votes share the read side so they run in parallel; closing takes the write side,
+    // which waits for in-flight votes and guarantees none land after the survey closed.
+    // Results snapshots are built under the write side too, so they never see half a vote.
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile Journal journal = Journal.NONE;
+    private volatile long communityId = Community.DEFAULT_ID;
+    // lifecycle plan in epoch millis (0 = none), journaled so a restart can resume it:
+    // a pending launch (and the answering window it will open), or the close deadline once sent
+    private volatile long launchAt;
+    private volatile int launchCloseMinutes;
+    private volatile long closeAt;
 
     public Survey(String id, List<Question> questions, User creator) {
+        this(id, questions, creator, LocalDateTime.now());
+    }
+
+    Survey(String id, List<Question> questions, User creator, LocalDateTime startTime) {
         this.id = id;
-        this.questions = questions;
+        this.handle = CallbackCodec.surveyHandle(id);
+        this.questions = List.copyOf(questions);
+        if (this.questions.size() > ResponseStore.MAX_QUESTIONS) {
+            throw new IllegalArgumentException("At most " + ResponseStore.MAX_QUESTIONS + " questions per survey. ");
+        }
+        for (Question q : this.questions) {
+            if (q.getOptions().size() > ResponseStore.MAX_OPTIONS) {
+                throw new IllegalArgumentException("At most " + ResponseStore.MAX_OPTIONS + " options per question. ");
+            }
+        }
         this.creator = creator;
-        this.startTime = LocalDateTime.now();
+        this.startTime = startTime;
         this.active = true;
-        this.responses = new HashMap<>();
+        this.responses = new ResponseStore();
+        this.results = new ResultsAggregator(this, closeLock.writeLock());
     }
 
-    public boolean collectResponse(User user, List<Integer> answers) {
-        if (!active) return false;
-        if (responses.containsKey(user.getTelegramId())) return false;
+    void attach(long communityId, Journal journal) {
+        this.communityId = communityId;
+        this.journal = journal;
+    }
 
-        responses.put(user.getTelegramId(), answers);
+    public boolean collectResponse(User user, List<Integer> answers) {
+        closeLock.readLock().lock();
+        try {
+            if (!active || !journal.isWritable()) return false;
+            int packed = 0;
+            for (int i = 0; i < questions.size(); i++) {
+                int chosen = answers.get(i);
+                if (chosen < 0 || chosen >= questions.get(i).getOptions().size()) return false;
+                packed = ResponseStore.pack(i, chosen, packed);
+            }
+            if (responses.contains(user.getTelegramId())) return false;
+            // journaled first, under the read lock: a response is always logged before the close,
+            // and one the journal refused leaves nothing behind, so the member can vote again.
+            // A same-member duplicate that slips past the check is logged twice; replay drops it.
+            try {
+                journal.responseCollected(this, user.getTelegramId(), answers);
+            } catch (IllegalStateException e) {
+                return false;
+            }
+            if (!responses.putIfAbsent(user.getTelegramId(), packed)) return false;
 
-        for (int i = 0; i < questions.size(); i++) {
-            int chosenIndex = answers.get(i);
-            String chosenOption = questions.get(i).getOptions().get(chosenIndex);
-            questions.get(i).addVote(chosenOption);
+            for (int i = 0; i < questions.size(); i++) {
+                questions.get(i).addVote(answers.get(i));
+            }
+            results.onResponse();
+        } finally {
+            closeLock.readLock().unlock();
         }
 
         user.markVoted();
+        for (Consumer<Survey> l : voteListeners) l.accept(this);
         return true;
     }
 
+    public void addVoteListener(Consumer<Survey> listener) {
+        voteListeners.add(listener);
+    }
+
+    public void removeVoteListener(Consumer<Survey> listener) {
+        voteListeners.remove(listener);
+    }
+
     public boolean isExpired() {
         return LocalDateTime.now().isAfter(startTime.plusMinutes(durationMinutes));
     }
 
-    public void closeSurvey() {
-        this.active = false;
+    public void planLaunch(long atMillis, int closeAfterMinutes) {
+        plan(atMillis, closeAfterMinutes, 0);
+    }
+
+    public void planClose(long atMillis) {
+        plan(0, 0, atMillis);
+    }
+
+    // Throws IllegalStateException if the journal refused the plan; the in-memory plan is kept.
+    private void plan(long launchAt, int launchCloseMinutes, long closeAt) {
+        closeLock.readLock().lock();
+        try {
+            if (!active) return;
+            restorePlan(launchAt, launchCloseMinutes, closeAt);
+            journal.surveyScheduled(this);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    void restorePlan(long launchAt, int launchCloseMinutes, long closeAt) {
+        this.launchAt = launchAt;
+        this.launchCloseMinutes = launchCloseMinutes;
+        this.closeAt = closeAt;
+    }
+
+    // Returns true only for the caller that actually closed the survey.
+    public boolean closeSurvey() {
+        closeLock.writeLock().lock();
+        try {
+            if (!active) return false;
+            this.active = false;
+            journal.surveyClosed(this);
+            return true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
     }
 
     public boolean isActive() { return active; }
     public String getId() { return id; }
+    public long getHandle() { return handle; }
+    public long getCommunityId() { return communityId; }
     public User getCreator() { return creator; }
+    public int getDurationMinutes() { return durationMinutes; }
+    public long getLaunchAt() { return launchAt; }
+    public int getLaunchCloseMinutes() { return launchCloseMinutes; }
+    public long getCloseAt() { return closeAt; }
     public List<Question> getQuestions() { return questions; }
-    public Map<Long, List<Integer>> getResponses() { return responses; }
+    public int getResponseCount() { return responses.size(); }
+    // O(1) unless votes arrived since the last call; then rebuilt once for all readers
+    public ResultsSnapshot getResults() { return results.latest(); }
+    public long getResultsVersion() { return results.version(); }
+    public boolean hasResponded(long telegramId) { return responses.contains(telegramId); }
+
+    public void forEachResponse(BiConsumer<Long, List<Integer>> consumer) {
+        responses.forEach((id, packed) -> consumer.accept(id, unpack(packed)));
+    }
+
+    // Materialized copy: O(respondents), meant for exports and debugging, not hot paths.
+    public Map<Long, List<Integer>> getResponses() {
+        Map<Long, List<Integer>> out = new HashMap<>();
+        forEachResponse(out::put);
+        return Collections.unmodifiableMap(out);
+    }
+
+    private List<Integer> unpack(int packed) {
+        Integer[] answers = new Integer[questions.size()];
+        for (int i = 0; i < answers.length; i++) answers[i] = ResponseStore.unpack(packed, i);
+        return List.of(answers);
+    }
     public LocalDateTime getStartTime() { return startTime; }
 
     @Override
@@ -6,17 +6,15 @@ import java.util.Map;
 public class SurveyResult {
 
     private final Survey survey;
+    private final ResultsSnapshot snapshot;
     private final Map<String, Map<String, Double>> resultsByQuestion;
 
     public SurveyResult(Survey survey) {
         this.survey = survey;
+        this.snapshot = survey.getResults();
         this.resultsByQuestion = new LinkedHashMap<>();
-        calculateResults();
-    }
-
-    private void calculateResults() {
-        for (Question question : survey.getQuestions()) {
-            resultsByQuestion.put(question.getText(), question.getResultsPercent());
+        for (ResultsSnapshot.QuestionResult q : snapshot.getQuestions()) {
+            resultsByQuestion.put(q.getText(), q.getPercentByOption());
         }
     }
 
@@ -31,12 +29,14 @@ public class SurveyResult {
     }
 
     public Survey getSurvey() { return survey; }
+    public ResultsSnapshot getSnapshot() { return snapshot; }
     public Map<String, Map<String, Double>> getResultsByQuestion() { return resultsByQuestion; }
 
     @Override
     public String toString() {
         return "SurveyResult{" +
                 "survey=" + survey.getId() +
+                ", version=" + snapshot.getVersion() +
                 ", questions=" + resultsByQuestion.size() +
                 '}';
     }
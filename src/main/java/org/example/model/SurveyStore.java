@@ -0,0 +1,391 @@
+package org.example.model;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+// Durable state of one community: an append-only event log plus a periodically compacted
+// snapshot. Callers only encode the event and enqueue it; a single writer thread appends
+// whole batches through one FileChannel and fsyncs once per batch (group commit). Every
+// event is idempotent on replay, which lets compaction snapshot live state without
+// stopping writers.
+//
+// Frame layout (both files): int length | byte type + payload | int crc32c
+public class SurveyStore implements Journal, AutoCloseable {
+
+    private static final byte JOIN = 1;
+    private static final byte SURVEY = 2;
+    private static final byte RESPONSE = 3;
+    private static final byte CLOSE = 4;
+    private static final byte SCHEDULE = 5;
+
+    private static final int MAX_BATCH = 4096;
+    private static final long COMPACT_BYTES = 16L * 1024 * 1024;
+    private static final long COMPACT_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final byte[] STOP = new byte[0];
+    // a bounded backlog: a writer that can't keep up slows callers down instead of filling the heap
+    private static final int MAX_QUEUED = 65_536;
+    private static final long ENQUEUE_TIMEOUT_MILLIS = 5_000;
+    private static final System.Logger LOG = System.getLogger(SurveyStore.class.getName());
+
+    private final Path snapshotFile;
+    private final Path logFile;
+    private final Community community;
+    private final FileChannel log;
+    private final BlockingQueue<byte[]> queue = new LinkedBlockingQueue<>(MAX_QUEUED);
+    private final Thread writer;
+    private long lastCompaction = System.currentTimeMillis();
+    // set once the writer has given up; every later change is refused
+    private volatile Throwable failure;
+
+    private SurveyStore(Path dir, Community community) throws IOException {
+        Files.createDirectories(dir);
+        this.snapshotFile = dir.resolve("snapshot.bin");
+        this.logFile = dir.resolve("events.log");
+        this.community = community;
+
+        replay(snapshotFile, false);
+        long validLength = replay(logFile, true);
+
+        this.log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        log.truncate(validLength); // drop a torn tail from a crash mid-write
+        log.position(validLength);
+
+        this.writer = new Thread(this::writeLoop, "survey-store-writer");
+        writer.setDaemon(true);
+        writer.start();
+        community.setJournal(this);
+    }
+
+    // Before per-community directories, the one (default) community was stored straight in
+    // dataDir. Moves those files into target on first start, unless target already has data.
+    public static boolean migrateLegacyLayout(Path dataDir, Path target) throws IOException {
+        Path legacySnapshot = dataDir.resolve("snapshot.bin");
+        Path legacyLog = dataDir.resolve("events.log");
+        if (!Files.exists(legacySnapshot) && !Files.exists(legacyLog)) return false;
+        if (Files.exists(target.resolve("snapshot.bin")) || Files.exists(target.resolve("events.log"))) return false;
+        Files.createDirectories(target);
+        for (Path p : List.of(legacySnapshot, legacyLog)) {
+            if (Files.exists(p)) Files.move(p, target.resolve(p.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+        }
+        return true;
+    }
+
+    // Loads snapshot + log tail into the (empty) community and starts journaling its changes.
+    public static SurveyStore open(Path dir, Community community) throws IOException {
+        return new SurveyStore(dir, community);
+    }
+
+    @Override public boolean isWritable() {
+        return failure == null;
+    }
+
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    @Override public void memberJoined(User user) {
+        enqueue(JOIN, out -> writeUser(out, user));
+    }
+
+    @Override public void surveyCreated(Survey survey) {
+        enqueue(SURVEY, out -> writeSurvey(out, survey));
+    }
+
+    @Override public void surveyScheduled(Survey survey) {
+        enqueue(SCHEDULE, out -> writeSchedule(out, survey));
+    }
+
+    @Override public void responseCollected(Survey survey, long telegramId, List<Integer> answers) {
+        enqueue(RESPONSE, out -> writeResponse(out, survey.getId(), telegramId, answers));
+    }
+
+    @Override public void surveyClosed(Survey survey) {
+        enqueue(CLOSE, out -> out.writeUTF(survey.getId()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (failure == null) {
+            try {
+                queue.offer(STOP, ENQUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+    }
+
+    // ---- write path ----
+
+    private interface Payload {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    // Throws IllegalStateException if the event can't be made durable: the writer has failed,
+    // or it stayed too far behind for ENQUEUE_TIMEOUT_MILLIS (which then counts as failed).
+    private void enqueue(byte type, Payload payload) {
+        checkWritable();
+        byte[] frame = frame(type, payload);
+        try {
+            if (queue.offer(frame, ENQUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) return;
+            fail(new IOException("Writer stalled: " + queue.size() + " events queued"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while journaling. ", e);
+        }
+        checkWritable();
+    }
+
+    private void checkWritable() {
+        Throwable f = failure;
+        if (f != null) throw new IllegalStateException("Survey store " + logFile + " is not writable. ", f);
+    }
+
+    private void fail(Throwable e) {
+        if (failure != null) return;
+        failure = e;
+        queue.clear(); // nothing more will be written; don't hold on to it
+        LOG.log(System.Logger.Level.ERROR, "Survey store " + logFile + " stopped writing; changes are no longer persisted", e);
+    }
+
+    private static byte[] frame(byte type, Payload payload) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeByte(type);
+            payload.write(out);
+            out.writeInt(0);
+            byte[] frame = bytes.toByteArray();
+            int bodyLength = frame.length - 8;
+            ByteBuffer buf = ByteBuffer.wrap(frame);
+            buf.putInt(0, bodyLength);
+            CRC32C crc = new CRC32C();
+            crc.update(frame, 4, bodyLength);
+            buf.putInt(frame.length - 4, (int) crc.getValue());
+            return frame;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeLoop() {
+        List<byte[]> batch = new ArrayList<>(MAX_BATCH);
+        long bytesSinceCompaction = 0;
+        try {
+            while (true) {
+                byte[] first = queue.poll(1, TimeUnit.SECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    boolean stop = batch.remove(STOP);
+                    bytesSinceCompaction += append(batch);
+                    batch.clear();
+                    if (stop) return;
+                }
+                boolean due = System.currentTimeMillis() - lastCompaction >= COMPACT_INTERVAL_MILLIS;
+                if (bytesSinceCompaction >= COMPACT_BYTES || (due && bytesSinceCompaction > 0)) {
+                    compact();
+                    bytesSinceCompaction = 0;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    private long append(List<byte[]> batch) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+        long total = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.wrap(batch.get(i));
+            total += buffers[i].remaining();
+        }
+        long written = 0;
+        while (written < total) written += log.write(buffers);
+        log.force(false);
+        return total;
+    }
+
+    // Runs on the writer thread. Events still queued may already be part of the snapshot;
+    // they are replayed again after it, which is harmless because replay is idempotent.
+    private void compact() throws IOException {
+        Path tmp = snapshotFile.resolveSibling("snapshot.tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            List<byte[]> frames = new ArrayList<>();
+            for (User u : community.getMembers()) frames.add(frame(JOIN, o -> writeUser(o, u)));
+            for (Survey s : community.getActiveSurveys()) {
+                frames.add(frame(SURVEY, o -> writeSurvey(o, s)));
+                if (s.getLaunchAt() > 0 || s.getCloseAt() > 0) frames.add(frame(SCHEDULE, o -> writeSchedule(o, s)));
+                s.forEachResponse((id, answers) ->
+                        frames.add(frame(RESPONSE, o -> writeResponse(o, s.getId(), id, answers))));
+            }
+            for (byte[] f : frames) {
+                ByteBuffer b = ByteBuffer.wrap(f);
+                while (b.hasRemaining()) out.write(b);
+            }
+            out.force(true);
+        }
+        Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.truncate(0);
+        log.position(0);
+        log.force(true);
+        lastCompaction = System.currentTimeMillis();
+    }
+
+    private static void writeUser(DataOutputStream out, User u) throws IOException {
+        out.writeLong(u.getTelegramId());
+        out.writeUTF(u.getName() != null ? u.getName() : "");
+    }
+
+    private static void writeSurvey(DataOutputStream out, Survey s) throws IOException {
+        out.writeUTF(s.getId());
+        writeUser(out, s.getCreator());
+        out.writeLong(s.getStartTime().toInstant(ZoneOffset.UTC).toEpochMilli());
+        out.writeByte(s.getQuestions().size());
+        for (Question q : s.getQuestions()) {
+            out.writeUTF(q.getText());
+            out.writeByte(q.getOptions().size());
+            for (String o : q.getOptions()) out.writeUTF(o);
+        }
+    }
+
+    private static void writeSchedule(DataOutputStream out, Survey s) throws IOException {
+        out.writeUTF(s.getId());
+        out.writeLong(s.getLaunchAt());
+        out.writeByte(s.getLaunchCloseMinutes());
+        out.writeLong(s.getCloseAt());
+    }
+
+    private static void writeResponse(DataOutputStream out, String surveyId, long telegramId,
+                                      List<Integer> answers) throws IOException {
+        out.writeUTF(surveyId);
+        out.writeLong(telegramId);
+        out.writeByte(answers.size());
+        for (int a : answers) out.writeByte(a);
+    }
+
+    // ---- replay ----
+
+    // Returns the length of the valid prefix; stops at the first torn or corrupt frame.
+    private long replay(Path file, boolean tolerateTail) throws IOException {
+        if (!Files.exists(file)) return 0;
+        long valid = 0;
+        try (InputStream raw = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(raw, 1 << 16))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length <= 0 || length > (1 << 20)) break;
+                byte[] body = new byte[length];
+                int crc;
+                try {
+                    in.readFully(body);
+                    crc = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32C check = new CRC32C();
+                check.update(body);
+                if ((int) check.getValue() != crc) break;
+                apply(new DataInputStream(new ByteArrayInputStream(body)));
+                valid += 8 + length;
+            }
+        }
+        if (!tolerateTail && valid != Files.size(file)) {
+            throw new IOException("Corrupt snapshot: " + file);
+        }
+        return valid;
+    }
+
+    private void apply(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case JOIN -> community.addMember(readUser(in));
+            case SURVEY -> {
+                String id = in.readUTF();
+                User creator = readUser(in);
+                LocalDateTime start = LocalDateTime.ofInstant(Instant.ofEpochMilli(in.readLong()), ZoneOffset.UTC);
+                int n = in.readByte();
+                List<Question> questions = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    String text = in.readUTF();
+                    int m = in.readByte();
+                    List<String> options = new ArrayList<>(m);
+                    for (int j = 0; j < m; j++) options.add(in.readUTF());
+                    questions.add(new Question(text, options));
+                }
+                if (community.findSurvey(id) == null) {
+                    community.setActiveSurvey(new Survey(id, questions, creator, start));
+                }
+            }
+            case RESPONSE -> {
+                Survey s = matching(in.readUTF());
+                long telegramId = in.readLong();
+                int n = in.readByte();
+                List<Integer> answers = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) answers.add((int) in.readByte());
+                if (s != null) {
+                    User u = community.findMember(telegramId);
+                    s.collectResponse(u != null ? u : new User(telegramId, ""), answers);
+                }
+            }
+            case SCHEDULE -> {
+                Survey s = matching(in.readUTF());
+                long launchAt = in.readLong();
+                int closeMinutes = in.readByte();
+                long closeAt = in.readLong();
+                if (s != null) s.restorePlan(launchAt, closeMinutes, closeAt);
+            }
+            case CLOSE -> {
+                Survey s = matching(in.readUTF());
+                if (s != null && s.closeSurvey()) {
+                    for (User u : community.getMembers()) u.resetVote();
+                    community.retireSurvey(s);
+                }
+            }
+            default -> throw new IOException("Unknown event type " + type);
+        }
+    }
+
+    private Survey matching(String surveyId) {
+        return community.findSurvey(surveyId);
+    }
+
+    private static User readUser(DataInputStream in) throws IOException {
+        return new User(in.readLong(), in.readUTF());
+    }
+}
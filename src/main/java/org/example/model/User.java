@@ -3,8 +3,8 @@ package org.example.model;
 public class User {
 
     private final long telegramId;
-    private String name;
-    private boolean hasVoted;
+    private volatile String name;
+    private volatile boolean hasVoted;
 
     public User(long telegramId, String name) {
         this.telegramId = telegramId;
@@ -1,115 +1,394 @@
 package org.example.service;
 
+import org.example.metrics.Histogram;
+import org.example.metrics.Metrics;
 import org.example.model.ChatGPTResponse;
 import org.example.util.Constants;
 
+import java.io.IOException;
+import java.net.ConnectException;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
+// Client for the seker.live LLM endpoint. Every call is asynchronous (HttpClient.sendAsync
+// on one shared, keep-alive client); the blocking methods just join the async ones.
+// An attempt that times out, fails to connect or gets a 429/5xx is retried with jittered
+// exponential backoff; a call that still fails counts against the circuit breaker.
+// send-message is the exception: it is billed and appends to the conversation, so it is
+// retried only when the server provably didn't process it (connect failure, 429, 503).
+// Replies are parsed while they stream in (XmlResponseHandler), never buffered whole.
+// Calls never complete exceptionally: failures come back as unsuccessful ChatGPTResponses.
 public class ChatGPTService {
 
-    private final String baseUrl = Constants.API_BASE_URL;
-    private final String id = Constants.USER_ID;
-    private final HttpClient client = HttpClient.newBuilder()
-            .version(HttpClient.Version.HTTP_1_1)
-            .build();
+    private static final XmlResponseHandler RESPONSE_HANDLER = new XmlResponseHandler();
+    private static final Consumer<CompletableFuture<?>> NO_TRACKING = f -> {};
+
+    private final String baseUrl;
+    private final String id;
+    private final Duration requestTimeout;
+    private final int maxAttempts;
+    private final long backoffBaseMillis;
+    private final CircuitBreaker breaker;
+    private final HttpClient client;
+
+    private final LatencyWindow messageLatency = new LatencyWindow(256);
+    private volatile HedgePolicy hedgePolicy;
+    // hedge budget and spend in balance units; the budget is fixed by the first balance read
+    // after the policy was set and never refilled (a new setHedgePolicy starts a new one)
+    private final Object hedgeLock = new Object();
+    private double hedgeBudget = Double.NaN;
+    private double hedgeSpent;
+    private final AtomicBoolean budgetLoading = new AtomicBoolean();
+    private final LongAdder hedgesFired = new LongAdder();
+
+    public ChatGPTService() {
+        this(Constants.API_BASE_URL, Constants.USER_ID);
+    }
+
+    // baseUrl can point anywhere speaking the same protocol, e.g. a local stub server
+    public ChatGPTService(String baseUrl, String id) {
+        this(baseUrl, id,
+                Duration.ofSeconds(Constants.API_CONNECT_TIMEOUT_SECONDS),
+                Duration.ofSeconds(Constants.API_REQUEST_TIMEOUT_SECONDS),
+                Constants.API_MAX_ATTEMPTS, Constants.API_BACKOFF_BASE_MILLIS,
+                Constants.API_BREAKER_FAILURE_THRESHOLD, Constants.API_BREAKER_OPEN_SECONDS * 1000L);
+    }
+
+    public ChatGPTService(String baseUrl, String id, Duration connectTimeout, Duration requestTimeout,
+                          int maxAttempts, long backoffBaseMillis,
+                          int breakerFailureThreshold, long breakerOpenMillis) {
+        if (maxAttempts < 1) throw new IllegalArgumentException("maxAttempts must be at least 1. ");
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        this.id = id;
+        this.requestTimeout = requestTimeout;
+        this.maxAttempts = maxAttempts;
+        this.backoffBaseMillis = backoffBaseMillis;
+        this.breaker = new CircuitBreaker(breakerFailureThreshold, breakerOpenMillis);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .build();
+    }
 
     public ChatGPTResponse checkBalance() {
-        String url = baseUrl + "check-balance?id=" + enc(id);
-        return sendGet(url);
+        return checkBalanceAsync().join();
     }
 
     public ChatGPTResponse clearHistory() {
-        String url = baseUrl + "clear-history?id=" + enc(id);
-        return sendGet(url);
+        return clearHistoryAsync().join();
     }
 
     public ChatGPTResponse sendMessage(String text) {
-        String url = baseUrl + "send-message?id=" + enc(id) + "&text=" + enc(text);
-        return sendGet(url);
+        return sendMessageAsync(text).join();
     }
 
-    private ChatGPTResponse sendGet(String url) {
-        try {
-            HttpRequest req = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .header("Accept", "application/xml")
-                    .GET()
-                    .build();
-
-            HttpResponse<String> res = client.send(req, HttpResponse.BodyHandlers.ofString());
-            if (res.statusCode() == 404 && !url.endsWith("/")) {
-                String retryUrl = url + "/";
-                HttpRequest retry = HttpRequest.newBuilder()
-                        .uri(URI.create(retryUrl))
-                        .header("Accept", "application/xml")
-                        .GET()
-                        .build();
-                res = client.send(retry, HttpResponse.BodyHandlers.ofString());
-            }
-            return parseResponse(res);
-        } catch (Exception e) {
-            return new ChatGPTResponse(false, "LOCAL_EXCEPTION", e.getMessage());
+    public CompletableFuture<ChatGPTResponse> checkBalanceAsync() {
+        return getAsync("check-balance", Metrics.LLM_CHECK_BALANCE, true, baseUrl + "check-balance?id=" + enc(id));
+    }
+
+    public CompletableFuture<ChatGPTResponse> clearHistoryAsync() {
+        return getAsync("clear-history", Metrics.LLM_CLEAR_HISTORY, true, baseUrl + "clear-history?id=" + enc(id));
+    }
+
+    public CompletableFuture<ChatGPTResponse> sendMessageAsync(String text) {
+        long start = System.nanoTime();
+        return getAsync("send-message", Metrics.LLM_SEND_MESSAGE, false, sendMessageUrl(text)).whenComplete((res, err) -> {
+            if (res != null && res.isSuccess()) messageLatency.record((System.nanoTime() - start) / 1_000_000);
+        });
+    }
+
+    // null turns hedging off. Setting a policy starts a fresh budget, taken from the next
+    // successful balance read; until then no hedges are sent.
+    public void setHedgePolicy(HedgePolicy policy) {
+        synchronized (hedgeLock) {
+            this.hedgePolicy = policy;
+            hedgeBudget = Double.NaN;
+            hedgeSpent = 0;
         }
+        if (policy != null) loadHedgeBudget(policy);
     }
 
-    private ChatGPTResponse sendPost(String url, String form) {
-        try {
-            HttpRequest req = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .header("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8")
-                    .header("Accept", "application/xml")
-                    .POST(HttpRequest.BodyPublishers.ofString(form))
-                    .build();
-
-            HttpResponse<String> res = client.send(req, HttpResponse.BodyHandlers.ofString());
-            if (res.statusCode() == 404 && !url.endsWith("/")) {
-                String retryUrl = url + "/";
-                HttpRequest retry = HttpRequest.newBuilder()
-                        .uri(URI.create(retryUrl))
-                        .header("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8")
-                        .header("Accept", "application/xml")
-                        .POST(HttpRequest.BodyPublishers.ofString(form))
-                        .build();
-                res = client.send(retry, HttpResponse.BodyHandlers.ofString());
+    // A hedged send-message in flight: first is the first reply passing `valid` (or the last
+    // failure if none did); settled completes, with the number of legs sent, once every leg
+    // has finished, so a follow-up in the same conversation can wait for the losers' replies.
+    public record Hedged(CompletableFuture<ChatGPTResponse> first, CompletableFuture<Integer> settled) {}
+
+    // Like sendMessageAsync, but with a HedgePolicy set a slow first request gets a twin and
+    // the first response passing `valid` wins; the other request is cancelled. Each leg is an
+    // ordinary send-message call, with the same retries and 404 fallback as sendMessageAsync.
+    // A cancelled leg may still be finished by the server and land in the id's conversation,
+    // so this is only for prompts nothing else in that conversation depends on; conversation
+    // bound prompts use sendMessageHedgedToCompletion.
+    public CompletableFuture<ChatGPTResponse> sendMessageHedged(String text, Predicate<ChatGPTResponse> valid) {
+        return hedge(text, valid, true).first();
+    }
+
+    // Hedged like sendMessageHedged, but losers are left to finish instead of being cancelled,
+    // so once settled completes the conversation holds every leg's prompt and reply.
+    public Hedged sendMessageHedgedToCompletion(String text, Predicate<ChatGPTResponse> valid) {
+        return hedge(text, valid, false);
+    }
+
+    private Hedged hedge(String text, Predicate<ChatGPTResponse> valid, boolean cancelLosers) {
+        HedgePolicy policy = hedgePolicy;
+        if (policy == null) {
+            CompletableFuture<ChatGPTResponse> single = sendMessageAsync(text);
+            return new Hedged(single, single.handle((r, err) -> 1));
+        }
+        if (!breaker.tryAcquire()) {
+            Metrics.llmFailures("send-message", "CIRCUIT_OPEN").increment();
+            CompletableFuture<ChatGPTResponse> open = CompletableFuture.completedFuture(
+                    new ChatGPTResponse(false, "CIRCUIT_OPEN", "LLM endpoint unavailable, try again shortly"));
+            return new Hedged(open, CompletableFuture.completedFuture(0));
+        }
+        loadHedgeBudget(policy);
+
+        String url = sendMessageUrl(text);
+        long start = System.nanoTime();
+        CompletableFuture<ChatGPTResponse> result = new CompletableFuture<>();
+        CompletableFuture<Integer> settled = new CompletableFuture<>();
+        // per leg, every HTTP exchange it started (retries included), so a loser can be cancelled
+        List<List<CompletableFuture<?>>> legs = new CopyOnWriteArrayList<>();
+        AtomicReference<List<CompletableFuture<?>>> winner = new AtomicReference<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        // legs still running plus the hedge timer while it hasn't decided
+        AtomicInteger unsettled = new AtomicInteger(2);
+        AtomicReference<ChatGPTResponse> lastFailure = new AtomicReference<>();
+        // some leg got a real answer from the endpoint: the call then counts as a success for the
+        // breaker even if no answer was valid, exactly as in getAsync
+        AtomicBoolean reachable = new AtomicBoolean();
+
+        Runnable launch = () -> {
+            List<CompletableFuture<?>> exchanges = new CopyOnWriteArrayList<>();
+            legs.add(exchanges);
+            attempt(url, 1, false, f -> {
+                exchanges.add(f);
+                // decided while this leg was starting or retrying: the cancel loop may have missed f
+                if (cancelLosers && result.isDone() && winner.get() != exchanges) f.cancel(true);
+            }).whenComplete((res, err) -> {
+                ChatGPTResponse r = err != null ? localFailure(err) : res.body();
+                if (err == null && !isTransient(res.statusCode())) reachable.set(true);
+                if (err == null && !isTransient(res.statusCode()) && valid.test(r)
+                        && winner.compareAndSet(null, exchanges)) {
+                    result.complete(r);
+                    messageLatency.record((System.nanoTime() - start) / 1_000_000);
+                    if (cancelLosers) {
+                        for (List<CompletableFuture<?>> other : legs) {
+                            if (other != exchanges) other.forEach(f -> f.cancel(true));
+                        }
+                    }
+                } else {
+                    lastFailure.set(r);
+                    if (pending.decrementAndGet() == 0) result.complete(r);
+                }
+                if (unsettled.decrementAndGet() == 0) settled.complete(legs.size());
+            });
+        };
+        launch.run();
+
+        CompletableFuture.delayedExecutor(hedgeDelayMillis(policy), TimeUnit.MILLISECONDS).execute(() -> {
+            pending.incrementAndGet();
+            if (result.isDone() || !tryReserveHedge(policy)) {
+                if (pending.decrementAndGet() == 0) result.complete(lastFailure.get());
+            } else {
+                hedgesFired.increment();
+                unsettled.incrementAndGet();
+                launch.run();
             }
-            return parseResponse(res);
-        } catch (Exception e) {
-            return new ChatGPTResponse(false, "LOCAL_EXCEPTION", e.getMessage());
+            if (unsettled.decrementAndGet() == 0) settled.complete(legs.size());
+        });
+
+        CompletableFuture<ChatGPTResponse> first = result.whenComplete((r, err) -> {
+            if (reachable.get()) breaker.onSuccess();
+            else breaker.onFailure();
+            record("send-message", Metrics.LLM_SEND_MESSAGE, start, r);
+        });
+        return new Hedged(first, settled);
+    }
+
+    public long getHedgesFired() {
+        return hedgesFired.sum();
+    }
+
+    // the balance comes back as free text; take the first number in it
+    public static double parseBalance(String extra) {
+        if (extra == null) return Double.NaN;
+        int i = 0, n = extra.length();
+        while (i < n && !Character.isDigit(extra.charAt(i))) i++;
+        int start = i;
+        while (i < n && (Character.isDigit(extra.charAt(i)) || extra.charAt(i) == '.')) i++;
+        if (start == i) return Double.NaN;
+        try {
+            double v = Double.parseDouble(extra.substring(start, i));
+            return start > 0 && extra.charAt(start - 1) == '-' ? -v : v;
+        } catch (NumberFormatException e) {
+            return Double.NaN;
         }
     }
 
-    private ChatGPTResponse parseResponse(HttpResponse<String> httpRes) {
-        String body = httpRes.body();
-        if (body == null || body.isBlank()) {
-            return new ChatGPTResponse(false, "EMPTY_BODY", "HTTP " + httpRes.statusCode());
+    private long hedgeDelayMillis(HedgePolicy policy) {
+        return messageLatency.size() >= policy.minSamples()
+                ? messageLatency.percentile(policy.percentile())
+                : policy.defaultDelayMillis();
+    }
+
+    // balance units still available for hedges; NaN while the budget isn't known yet
+    public double getHedgeBudgetLeft() {
+        synchronized (hedgeLock) {
+            return hedgeBudget - hedgeSpent;
         }
-        boolean success = "true".equalsIgnoreCase(extractTag(body, "success"));
-        String errorCode = extractTag(body, "errorCode");
-        String extra = extractTag(body, "extra");
-        if (!success && httpRes.statusCode() >= 400 && errorCode == null) {
-            errorCode = "HTTP_" + httpRes.statusCode();
+    }
+
+    private boolean tryReserveHedge(HedgePolicy policy) {
+        synchronized (hedgeLock) {
+            if (hedgePolicy != policy || Double.isNaN(hedgeBudget)) return false;
+            if (hedgeSpent + policy.callCost() > hedgeBudget) return false;
+            hedgeSpent += policy.callCost();
+            return true;
         }
-        return new ChatGPTResponse(success, errorCode, extra);
     }
 
-    private String extractTag(String xml, String tag) {
-        String open = "<" + tag + ">";
-        String close = "</" + tag + ">";
-        int i = xml.indexOf(open);
-        int j = xml.indexOf(close);
-        if (i >= 0 && j > i) {
-            return xml.substring(i + open.length(), j).trim();
+    // one balance read at a time, until one succeeds for the current policy
+    private void loadHedgeBudget(HedgePolicy policy) {
+        synchronized (hedgeLock) {
+            if (!Double.isNaN(hedgeBudget)) return;
         }
-        String selfClosing = "<" + tag + "/>";
-        if (xml.contains(selfClosing)) {
-            return "";
+        if (!budgetLoading.compareAndSet(false, true)) return;
+        checkBalanceAsync().whenComplete((res, err) -> {
+            double balance = res != null && res.isSuccess() ? parseBalance(res.getExtra()) : Double.NaN;
+            synchronized (hedgeLock) {
+                if (hedgePolicy == policy && Double.isNaN(hedgeBudget) && !Double.isNaN(balance)) {
+                    hedgeBudget = Math.max(0, balance) * policy.budgetFraction();
+                }
+            }
+            budgetLoading.set(false);
+        });
+    }
+
+    private String sendMessageUrl(String text) {
+        return baseUrl + "send-message?id=" + enc(id) + "&text=" + enc(text);
+    }
+
+    public boolean isCircuitOpen() {
+        return breaker.getState() == CircuitBreaker.State.OPEN;
+    }
+
+    private CompletableFuture<ChatGPTResponse> getAsync(String endpoint, Histogram latency, boolean idempotent, String url) {
+        if (!breaker.tryAcquire()) {
+            Metrics.llmFailures(endpoint, "CIRCUIT_OPEN").increment();
+            return CompletableFuture.completedFuture(
+                    new ChatGPTResponse(false, "CIRCUIT_OPEN", "LLM endpoint unavailable, try again shortly"));
         }
-        return null;
+        long start = System.nanoTime();
+        return attempt(url, 1, idempotent, NO_TRACKING).handle((res, err) -> {
+            if (err != null || isTransient(res.statusCode())) breaker.onFailure();
+            else breaker.onSuccess();
+            ChatGPTResponse r = err != null ? localFailure(err) : res.body();
+            record(endpoint, latency, start, r);
+            return r;
+        });
+    }
+
+    private static void record(String endpoint, Histogram latency, long startNanos, ChatGPTResponse r) {
+        latency.recordSince(startNanos);
+        if (!r.isSuccess()) Metrics.llmFailures(endpoint, r.getErrorCode()).increment();
+    }
+
+    // track sees every HTTP request future started, retries included
+    private CompletableFuture<HttpResponse<ChatGPTResponse>> attempt(String url, int attemptNo, boolean idempotent,
+                                                                     Consumer<CompletableFuture<?>> track) {
+        return exchange(url, track)
+                .handle((res, err) -> {
+                    boolean retry = err != null ? isRetryable(err, idempotent) : isRetryable(res.statusCode(), idempotent);
+                    if (!retry || attemptNo >= maxAttempts) {
+                        return err != null ? CompletableFuture.<HttpResponse<ChatGPTResponse>>failedFuture(err)
+                                : CompletableFuture.completedFuture(res);
+                    }
+                    return CompletableFuture.supplyAsync(() -> url,
+                                    CompletableFuture.delayedExecutor(backoffMillis(attemptNo), TimeUnit.MILLISECONDS))
+                            .thenCompose(u -> attempt(u, attemptNo + 1, idempotent, track));
+                })
+                .thenCompose(f -> f);
+    }
+
+    private CompletableFuture<HttpResponse<ChatGPTResponse>> exchange(String url, Consumer<CompletableFuture<?>> track) {
+        return send(url, track)
+                .thenCompose(res -> {
+                    // the endpoint answers 404 for some paths unless they end with a slash
+                    if (res.statusCode() == 404 && !url.endsWith("/")) {
+                        return send(url + "/", track);
+                    }
+                    return CompletableFuture.completedFuture(res);
+                });
+    }
+
+    private CompletableFuture<HttpResponse<ChatGPTResponse>> send(String url, Consumer<CompletableFuture<?>> track) {
+        CompletableFuture<HttpResponse<ChatGPTResponse>> f = client.sendAsync(get(url), RESPONSE_HANDLER);
+        track.accept(f);
+        return f;
+    }
+
+    private HttpRequest get(String url) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(requestTimeout)
+                .header("Accept", "application/xml")
+                .GET()
+                .build();
+    }
+
+    // exponential with "equal jitter": half of the step is fixed, the other half random
+    private long backoffMillis(int attemptNo) {
+        long step = backoffBaseMillis << Math.min(attemptNo - 1, 10);
+        return step / 2 + ThreadLocalRandom.current().nextLong(step / 2 + 1);
+    }
+
+    private static boolean isTransient(int status) {
+        return status == 429 || status >= 500;
+    }
+
+    // Anything may be re-sent to idempotent endpoints; for the others only failures where the
+    // request never reached the server (a read timeout may mean it is being processed).
+    private static boolean isRetryable(Throwable err, boolean idempotent) {
+        Throwable cause = unwrap(err);
+        if (idempotent) return cause instanceof IOException; // timeouts and connect failures included
+        return cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException;
+    }
+
+    private static boolean isRetryable(int status, boolean idempotent) {
+        return idempotent ? isTransient(status) : status == 429 || status == 503;
+    }
+
+    private static ChatGPTResponse localFailure(Throwable err) {
+        Throwable cause = unwrap(err);
+        if (cause instanceof HttpTimeoutException) {
+            return new ChatGPTResponse(false, "TIMEOUT", cause.getMessage());
+        }
+        return new ChatGPTResponse(false, "LOCAL_EXCEPTION", String.valueOf(cause.getMessage()));
+    }
+
+    private static Throwable unwrap(Throwable err) {
+        while (err instanceof CompletionException && err.getCause() != null) err = err.getCause();
+        return err;
     }
 
     private String enc(String s) {
@@ -0,0 +1,51 @@
+package org.example.service;
+
+// Consecutive-failure breaker. CLOSED lets everything through; after failureThreshold
+// failures in a row it OPENs and rejects calls for openMillis; then one probe call is let
+// through (HALF_OPEN) and its outcome closes or re-opens the breaker.
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+
+    CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openMillis * 1_000_000L;
+    }
+
+    synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt < openNanos) return false;
+                state = State.HALF_OPEN; // this caller is the probe
+                return true;
+            default:
+                return false; // a probe is already in flight
+        }
+    }
+
+    synchronized void onSuccess() {
+        failures = 0;
+        state = State.CLOSED;
+    }
+
+    synchronized void onFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+}
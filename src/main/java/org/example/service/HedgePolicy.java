@@ -0,0 +1,18 @@
+package org.example.service;
+
+// Hedged send-message: if the first request hasn't answered after the `percentile` latency of
+// recent calls (defaultDelayMillis until minSamples calls have been seen), a second identical
+// request is fired and the first valid answer wins. Hedges are paid for: the budget is
+// budgetFraction of the balance read when the policy is set, and every hedge spends callCost
+// of it. Both are in check-balance's own unit (whatever the endpoint reports: credits, calls
+// or currency), so callCost is what one send-message takes off that balance. The budget is
+// not refilled by later balance reads; once it is spent, hedging stops.
+public record HedgePolicy(double percentile, long defaultDelayMillis, int minSamples,
+                          double budgetFraction, double callCost) {
+
+    public HedgePolicy {
+        if (percentile <= 0 || percentile > 1) throw new IllegalArgumentException("percentile must be in (0, 1]. ");
+        if (budgetFraction < 0) throw new IllegalArgumentException("budgetFraction must not be negative. ");
+        if (callCost <= 0) throw new IllegalArgumentException("callCost must be positive. ");
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.service;
+
+import java.util.Arrays;
+
+// The last `capacity` latencies of one kind of call, for percentile lookups (hedge delays).
+final class LatencyWindow {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+
+    LatencyWindow(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) size++;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    // p in (0, 1]; -1 while empty
+    synchronized long percentile(double p) {
+        if (size == 0) return -1;
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(p * size) - 1;
+        return sorted[Math.max(0, Math.min(size - 1, rank))];
+    }
+}
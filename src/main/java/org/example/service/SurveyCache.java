@@ -0,0 +1,243 @@
+package org.example.service;
+
+import org.example.metrics.Metrics;
+import org.example.model.Question;
+import org.example.util.SurveyJsonParser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// Generated questions per (normalized topic, prompt version). LRU-bounded and expiring after
+// ttlMillis; concurrent requests for the same key share one in-flight LLM call; and if a
+// file is given every change is written to it in the background (a burst of puts becomes one
+// rewrite of the file), one JSON object per line:
+//   {"key":"...","createdAt":1700000000000,"questions":[{"text":"...","options":["..."]}]}
+// (SurveyJsonParser reads the questions straight out of each line.)
+// Question carries vote tallies, so callers always get fresh copies, never the cached ones.
+public class SurveyCache {
+
+    private static final System.Logger LOG = System.getLogger(SurveyCache.class.getName());
+
+    private record Entry(List<Question> questions, long createdAt) {}
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Path file;
+    private final Map<String, Entry> entries;
+    private final Map<String, CompletableFuture<List<Question>>> inFlight = new ConcurrentHashMap<>();
+    private final Object fileLock = new Object();
+    private final AtomicBoolean writePending = new AtomicBoolean();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "survey-cache-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public SurveyCache(int maxEntries, long ttlMillis, Path file) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.file = file;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > SurveyCache.this.maxEntries;
+            }
+        };
+        if (file != null) load();
+    }
+
+    public static String key(String topic, int promptHash) {
+        String t = Normalizer.normalize(topic == null ? "" : topic, Normalizer.Form.NFKC)
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("\\s+", " ")
+                .trim();
+        return t + "#" + Integer.toHexString(promptHash);
+    }
+
+    // Cached copy if fresh, else the shared in-flight load, else a new load via loader.
+    // Empty or failed loads are not cached.
+    public CompletableFuture<List<Question>> getOrLoad(String key, Supplier<CompletableFuture<List<Question>>> loader) {
+        List<Question> hit = get(key);
+        if (hit != null) return CompletableFuture.completedFuture(hit);
+
+        boolean[] owner = {false};
+        CompletableFuture<List<Question>> shared = inFlight.computeIfAbsent(key, k -> {
+            owner[0] = true;
+            return new CompletableFuture<>();
+        });
+        if (owner[0]) {
+            CompletableFuture<List<Question>> created = shared;
+            // a load that finished between the miss above and computeIfAbsent left its result here
+            List<Question> cached = get(key);
+            CompletableFuture<List<Question>> load;
+            try {
+                load = cached != null ? CompletableFuture.completedFuture(cached) : loader.get();
+            } catch (RuntimeException e) {
+                load = CompletableFuture.failedFuture(e);
+            }
+            load.whenComplete((questions, err) -> {
+                if (err == null && questions != null && !questions.isEmpty() && cached == null) put(key, questions);
+                inFlight.remove(key, created);
+                if (err != null) created.completeExceptionally(err);
+                else created.complete(questions);
+            });
+        }
+        return shared.thenApply(SurveyCache::copyOf);
+    }
+
+    public List<Question> get(String key) {
+        Entry e;
+        synchronized (entries) {
+            e = entries.get(key);
+            if (e != null && isExpired(e)) {
+                entries.remove(key);
+                e = null;
+            }
+        }
+        return e != null ? copyOf(e.questions) : null;
+    }
+
+    public boolean contains(String key) {
+        synchronized (entries) {
+            Entry e = entries.get(key);
+            return e != null && !isExpired(e);
+        }
+    }
+
+    public void put(String key, List<Question> questions) {
+        synchronized (entries) {
+            entries.put(key, new Entry(copyOf(questions), System.currentTimeMillis()));
+        }
+        schedulePersist();
+    }
+
+    // Writes any pending change now, on the calling thread (e.g. from a shutdown hook).
+    public void flush() {
+        if (writePending.compareAndSet(true, false)) persist();
+    }
+
+    // Callers (often HttpClient completion threads) never wait for the disk: the first put
+    // after a write queues one, and puts arriving before it runs ride along with it.
+    private void schedulePersist() {
+        if (file == null) return;
+        if (writePending.compareAndSet(false, true)) {
+            writer.execute(this::flush);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private boolean isExpired(Entry e) {
+        return System.currentTimeMillis() - e.createdAt > ttlMillis;
+    }
+
+    private static List<Question> copyOf(List<Question> questions) {
+        List<Question> out = new ArrayList<>(questions.size());
+        for (Question q : questions) out.add(new Question(q.getText(), q.getOptions()));
+        return out;
+    }
+
+    private void load() {
+        if (!Files.exists(file)) return;
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String key = SurveyJsonParser.parseStringField(line, "key");
+                long createdAt = parseLongField(line, "createdAt");
+                List<Question> questions = SurveyJsonParser.parseQuestions(line);
+                if (key == null || createdAt < 0 || questions.isEmpty()) continue; // damaged line
+                Entry e = new Entry(questions, createdAt);
+                if (!isExpired(e)) entries.put(key, e);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read survey cache " + file, e);
+        }
+    }
+
+    private void persist() {
+        if (file == null) return;
+        List<Map.Entry<String, Entry>> snapshot;
+        synchronized (entries) {
+            snapshot = new ArrayList<>(entries.entrySet());
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Entry> e : snapshot) {
+            sb.append("{\"key\":").append(quote(e.getKey()))
+                    .append(",\"createdAt\":").append(e.getValue().createdAt)
+                    .append(",\"questions\":[");
+            List<Question> questions = e.getValue().questions;
+            for (int i = 0; i < questions.size(); i++) {
+                Question q = questions.get(i);
+                if (i > 0) sb.append(',');
+                sb.append("{\"text\":").append(quote(q.getText())).append(",\"options\":[");
+                for (int j = 0; j < q.getOptions().size(); j++) {
+                    if (j > 0) sb.append(',');
+                    sb.append(quote(q.getOptions().get(j)));
+                }
+                sb.append("]}");
+            }
+            sb.append("]}\n");
+        }
+        synchronized (fileLock) {
+            try {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+                Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+                Files.writeString(tmp, sb, StandardCharsets.UTF_8);
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // the in-memory cache still works; the next put tries again
+                Metrics.CACHE_WRITE_FAILURES.increment();
+                LOG.log(System.Logger.Level.WARNING, "Failed to write survey cache " + file, e);
+            }
+        }
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static long parseLongField(String json, String key) {
+        String k = "\"" + key + "\":";
+        int i = json.indexOf(k);
+        if (i < 0) return -1;
+        i += k.length();
+        long v = 0;
+        int start = i;
+        for (; i < json.length() && Character.isDigit(json.charAt(i)); i++) v = v * 10 + (json.charAt(i) - '0');
+        return i > start ? v : -1;
+    }
+}
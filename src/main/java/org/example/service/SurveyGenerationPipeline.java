@@ -0,0 +1,232 @@
+package org.example.service;
+
+import org.example.model.ChatGPTResponse;
+import org.example.model.Question;
+import org.example.util.ResponseUtils;
+import org.example.util.SurveyJsonParser;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Topic -> questions, in stages:
+//   LLM      one prompt (the conversation is cleared first); hedged if the service has a
+//            HedgePolicy, a reply only counting if it contains questions. A losing leg is not
+//            cancelled but left to finish (the server would finish it anyway), and nothing
+//            else goes to the conversation before it has: not the next run's clear, not the
+//            re-prompt
+//   EXTRACT  JSON block out of the reply, parsed leniently (any option count, up to 16 questions)
+//   VALIDATE 1-3 questions, non-blank text, 2-4 distinct non-blank options
+//   REPAIR   fix what can be fixed locally: trim, drop blank/duplicate options, cut to 4
+//            options and 3 questions, drop questions that still don't qualify
+//   REPROMPT only if nothing usable is left: one short follow-up naming what was wrong
+//            (the endpoint keeps the conversation, so the model sees its previous reply;
+//            never hedged, since a twin would add a second reply to that conversation).
+//            If the LLM stage was hedged the conversation holds two replies, so the
+//            follow-up is sent with the original prompt in a fresh conversation instead
+// Every stage's latency is recorded, plus an estimate of prompt/reply tokens (chars / 4;
+// the endpoint doesn't report real counts).
+public class SurveyGenerationPipeline {
+
+    public enum Stage { LLM, EXTRACT, VALIDATE, REPAIR, REPROMPT }
+
+    public record StageStats(Stage stage, long count, double avgMillis, double maxMillis) {}
+
+    public record Stats(List<StageStats> stages, long promptTokens, long replyTokens,
+                        long runs, long repaired, long reprompts, long failures) {}
+
+    private static final int MAX_QUESTIONS = 3;
+    private static final int MAX_OPTIONS = 4;
+
+    private static final String PROMPT =
+            "החזר רק JSON נקי (ללא הסברים וללא ```) בפורמט: " +
+                    "{\"questions\":[{\"text\":\"שאלה\",\"options\":[\"אפשרות 1\",\"אפשרות 2\"]}]} " +
+                    "נושא: \"%s\". " +
+                    "מגבלות: 1–3 שאלות; לכל שאלה 2–4 אפשרויות קצרות.";
+    private static final String REPROMPT_NO_JSON =
+            "התשובה הקודמת לא הכילה JSON. החזר אך ורק את אובייקט ה-JSON בפורמט שביקשתי, בלי שום טקסט נוסף.";
+    private static final String REPROMPT_INVALID =
+            "ה-JSON הקודם לא תקין: %s. תקן והחזר אך ורק JSON באותו פורמט (1–3 שאלות, 2–4 אפשרויות לכל שאלה).";
+    // part of the survey cache key, so editing a prompt doesn't serve answers to the old one
+    public static final int PROMPT_HASH = (PROMPT + REPROMPT_NO_JSON + REPROMPT_INVALID).hashCode();
+
+    private final ChatGPTService gptService;
+    // completes once every request of the previous run has finished on the endpoint
+    private volatile CompletableFuture<?> conversationIdle = CompletableFuture.completedFuture(null);
+
+    private final LongAdder[] stageCount = new LongAdder[Stage.values().length];
+    private final LongAdder[] stageNanos = new LongAdder[Stage.values().length];
+    private final LongAccumulator[] stageMaxNanos = new LongAccumulator[Stage.values().length];
+    private final LongAdder promptTokens = new LongAdder();
+    private final LongAdder replyTokens = new LongAdder();
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder repaired = new LongAdder();
+    private final LongAdder reprompts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public SurveyGenerationPipeline(ChatGPTService gptService) {
+        this.gptService = gptService;
+        for (int i = 0; i < stageCount.length; i++) {
+            stageCount[i] = new LongAdder();
+            stageNanos[i] = new LongAdder();
+            stageMaxNanos[i] = new LongAccumulator(Math::max, 0);
+        }
+    }
+
+    // Completes with 1-3 valid questions, or an empty list if even the re-prompt gave nothing
+    // usable; fails with IllegalStateException if the first LLM call itself fails. Runs share
+    // the endpoint's one conversation, so callers must not start one before the last completed.
+    public CompletableFuture<List<Question>> run(String topic) {
+        runs.increment();
+        String prompt = String.format(PROMPT, topic);
+        return conversationIdle.handle((x, err) -> null)
+                .thenCompose(x -> gptService.clearHistoryAsync())
+                .thenCompose(cleared -> askHedged(prompt))
+                .thenCompose(first -> {
+                    ChatGPTResponse res = first.response;
+                    if (!res.isSuccess()) {
+                        failures.increment();
+                        throw new IllegalStateException("Failed to recieve questions from the API: " + res.getErrorCode() + " " + res.getExtra());
+                    }
+                    Outcome outcome = process(res.getExtra());
+                    if (outcome.questions != null) return CompletableFuture.completedFuture(outcome.questions);
+
+                    reprompts.increment();
+                    CompletableFuture<ChatGPTResponse> followUp = first.settled.thenCompose(legs -> legs > 1
+                            ? gptService.clearHistoryAsync().thenCompose(c -> ask(prompt + "\n" + outcome.reprompt, Stage.REPROMPT))
+                            : ask(outcome.reprompt, Stage.REPROMPT));
+                    conversationIdle = followUp;
+                    return followUp.thenApply(res2 -> {
+                        Outcome second = res2.isSuccess() ? process(res2.getExtra()) : null;
+                        if (second == null || second.questions == null) {
+                            failures.increment();
+                            return List.<Question>of();
+                        }
+                        return second.questions;
+                    });
+                });
+    }
+
+    public Stats getStats() {
+        List<StageStats> stages = new ArrayList<>();
+        for (Stage s : Stage.values()) {
+            long n = stageCount[s.ordinal()].sum();
+            double avg = n == 0 ? 0 : stageNanos[s.ordinal()].sum() / 1e6 / n;
+            stages.add(new StageStats(s, n, avg, stageMaxNanos[s.ordinal()].get() / 1e6));
+        }
+        return new Stats(stages, promptTokens.sum(), replyTokens.sum(),
+                runs.sum(), repaired.sum(), reprompts.sum(), failures.sum());
+    }
+
+    // questions != null: usable result; otherwise reprompt says what to ask for
+    private record Outcome(List<Question> questions, String reprompt) {}
+
+    // the LLM stage's reply plus when all of its legs have finished (and how many were sent)
+    private record FirstReply(ChatGPTResponse response, CompletableFuture<Integer> settled) {}
+
+    private CompletableFuture<FirstReply> askHedged(String prompt) {
+        promptTokens.add(estimateTokens(prompt));
+        long start = System.nanoTime();
+        ChatGPTService.Hedged call = gptService.sendMessageHedgedToCompletion(prompt, SurveyGenerationPipeline::hasQuestions);
+        conversationIdle = call.settled();
+        return call.first().thenApply(res -> {
+            record(Stage.LLM, start);
+            if (res.getExtra() != null) replyTokens.add(estimateTokens(res.getExtra()));
+            return new FirstReply(res, call.settled());
+        });
+    }
+
+    private CompletableFuture<ChatGPTResponse> ask(String prompt, Stage stage) {
+        promptTokens.add(estimateTokens(prompt));
+        long start = System.nanoTime();
+        return gptService.sendMessageAsync(prompt).whenComplete((res, err) -> {
+            record(stage, start);
+            if (res != null && res.getExtra() != null) replyTokens.add(estimateTokens(res.getExtra()));
+        });
+    }
+
+    private static boolean hasQuestions(ChatGPTResponse res) {
+        return res.isSuccess() && !SurveyJsonParser.parseAllQuestions(ResponseUtils.extractFirstJsonBlock(res.getExtra())).isEmpty();
+    }
+
+    private Outcome process(String reply) {
+        long start = System.nanoTime();
+        String block = ResponseUtils.extractFirstJsonBlock(reply);
+        List<Question> raw = SurveyJsonParser.parseAllQuestions(block);
+        if (raw.isEmpty() && reply != null && block != null && block.length() != reply.length()) {
+            raw = SurveyJsonParser.parseAllQuestions(reply); // the fenced block was the wrong one
+        }
+        record(Stage.EXTRACT, start);
+
+        start = System.nanoTime();
+        List<String> issues = validate(raw);
+        record(Stage.VALIDATE, start);
+        if (issues.isEmpty()) return new Outcome(raw, null);
+
+        start = System.nanoTime();
+        List<Question> fixed = repair(raw);
+        record(Stage.REPAIR, start);
+        if (!fixed.isEmpty()) {
+            repaired.increment();
+            return new Outcome(fixed, null);
+        }
+
+        if (raw.isEmpty()) {
+            return new Outcome(null, block == null ? REPROMPT_NO_JSON : String.format(REPROMPT_INVALID, "no questions found"));
+        }
+        return new Outcome(null, String.format(REPROMPT_INVALID, String.join("; ", issues)));
+    }
+
+    static List<String> validate(List<Question> questions) {
+        List<String> issues = new ArrayList<>();
+        if (questions.isEmpty()) issues.add("no questions");
+        if (questions.size() > MAX_QUESTIONS) issues.add(questions.size() + " questions, max " + MAX_QUESTIONS);
+        for (int i = 0; i < questions.size(); i++) {
+            Question q = questions.get(i);
+            if (q.getText().isBlank()) issues.add("question " + (i + 1) + " has no text");
+            List<String> options = q.getOptions();
+            if (options.size() < 2 || options.size() > MAX_OPTIONS) {
+                issues.add("question " + (i + 1) + " has " + options.size() + " options, needs 2-" + MAX_OPTIONS);
+            }
+            Set<String> seen = new LinkedHashSet<>();
+            for (String o : options) {
+                if (o.isBlank() || !seen.add(o.trim())) {
+                    issues.add("question " + (i + 1) + " has blank or duplicate options");
+                    break;
+                }
+            }
+        }
+        return issues;
+    }
+
+    static List<Question> repair(List<Question> questions) {
+        List<Question> out = new ArrayList<>();
+        for (Question q : questions) {
+            if (out.size() == MAX_QUESTIONS) break;
+            String text = q.getText().trim();
+            Set<String> options = new LinkedHashSet<>();
+            for (String o : q.getOptions()) {
+                String t = o.trim();
+                if (!t.isEmpty()) options.add(t);
+                if (options.size() == MAX_OPTIONS) break;
+            }
+            if (!text.isEmpty() && options.size() >= 2) out.add(new Question(text, List.copyOf(options)));
+        }
+        return out;
+    }
+
+    private void record(Stage stage, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        stageCount[stage.ordinal()].increment();
+        stageNanos[stage.ordinal()].add(nanos);
+        stageMaxNanos[stage.ordinal()].accumulate(nanos);
+    }
+
+    private static long estimateTokens(String s) {
+        return (s.length() + 3) / 4;
+    }
+}
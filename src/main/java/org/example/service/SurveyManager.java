@@ -1,99 +1,259 @@
 package org.example.service;
 
-import org.example.model.ChatGPTResponse;
 import org.example.model.Community;
+import org.example.model.CommunityRegistry;
 import org.example.model.Question;
 import org.example.model.Survey;
 import org.example.model.User;
 import org.example.util.BotConfig;
-import org.example.util.ResponseUtils;
-import org.example.util.SurveyJsonParser;
+import org.example.util.Constants;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class SurveyManager {
 
+    private static final System.Logger LOG = System.getLogger(SurveyManager.class.getName());
+
     private final Community community;
+    private final CommunityRegistry registry;
     private final ChatGPTService gptService;
-    private final Timer timer = new Timer(true);
+    private final SurveyScheduler scheduler;
+    private final SurveyCache cache;
+    private final SurveyGenerationPipeline pipeline;
+    private final Object llmLock = new Object();
+    private CompletableFuture<?> llmTail = CompletableFuture.completedFuture(null);
+    private final AtomicInteger generationsInFlight = new AtomicInteger();
+    private final Set<String> recentTopics = new LinkedHashSet<>();
+    // pending lifecycle events (launch, close, reminders) per survey id, cancelled on close
+    private final Map<String, List<SurveyScheduler.Timeout>> lifecycle = new ConcurrentHashMap<>();
+    private final List<Consumer<Survey>> closeListeners = new CopyOnWriteArrayList<>();
 
     public SurveyManager(Community community, ChatGPTService gptService) {
+        this(community, gptService, new SurveyScheduler(), new CommunityRegistry());
+    }
+
+    // community is the default one (used by the console); registry holds every community served
+    public SurveyManager(Community community, ChatGPTService gptService,
+                         SurveyScheduler scheduler, CommunityRegistry registry) {
+        this(community, gptService, scheduler, registry, new SurveyCache(Constants.AI_CACHE_MAX_ENTRIES,
+                TimeUnit.HOURS.toMillis(Constants.AI_CACHE_TTL_HOURS), null));
+    }
+
+    public SurveyManager(Community community, ChatGPTService gptService,
+                         SurveyScheduler scheduler, CommunityRegistry registry, SurveyCache cache) {
         this.community = community;
         this.gptService = gptService;
+        this.scheduler = scheduler;
+        this.registry = registry;
+        this.cache = cache;
+        this.pipeline = new SurveyGenerationPipeline(gptService);
+        registry.register(community);
+    }
+
+    public SurveyScheduler getScheduler() { return scheduler; }
+    public CommunityRegistry getRegistry() { return registry; }
+    public Community getDefaultCommunity() { return community; }
+
+    public void addCloseListener(Consumer<Survey> listener) {
+        closeListeners.add(listener);
     }
 
     public Survey createManualSurvey(List<Question> questions, User creator) {
-        validateCanCreate();
+        return createManualSurvey(community, questions, creator);
+    }
+
+    public Survey createManualSurvey(Community target, List<Question> questions, User creator) {
+        validateCanCreate(target);
         validateQuestions(questions);
         Survey survey = new Survey(UUID.randomUUID().toString(), questions, creator);
-        community.setActiveSurvey(survey);
+        activate(target, survey);
         return survey;
     }
 
     public Survey createAutoSurvey(String topic, User creator) {
-        validateCanCreate();
+        return createAutoSurvey(community, topic, creator);
+    }
 
-        String prompt1 =
-                "החזר רק JSON נקי (ללא הסברים וללא ```) בפורמט: " +
-                        "{\"questions\":[{\"text\":\"שאלה\",\"options\":[\"אפשרות 1\",\"אפשרות 2\"]}]} " +
-                        "נושא: \"" + topic + "\". " +
-                        "מגבלות: 1–3 שאלות; לכל שאלה 2–4 אפשרויות קצרות.";
+    public Survey createAutoSurvey(Community target, String topic, User creator) {
+        try {
+            return createAutoSurveyAsync(target, topic, creator).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    public CompletableFuture<Survey> createAutoSurveyAsync(String topic, User creator) {
+        return createAutoSurveyAsync(community, topic, creator);
+    }
+
+    // Never blocks the caller: the LLM round-trips run on the HTTP client's threads.
+    public CompletableFuture<Survey> createAutoSurveyAsync(Community target, String topic, User creator) {
+        try {
+            validateCanCreate(target);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        // the same topic asked again (by anyone, concurrently or after a restart) reuses the answer
+        rememberTopic(topic);
+        return cache.getOrLoad(SurveyCache.key(topic, SurveyGenerationPipeline.PROMPT_HASH), () -> generateQuestions(topic))
+                .thenApply(questions -> {
+                    validateQuestions(questions);
+                    Survey survey = new Survey(UUID.randomUUID().toString(), questions, creator);
+                    activate(target, survey);
+                    return survey;
+                });
+    }
+
+    // Warms the cache for topic without creating a survey; true if questions are now cached.
+    public CompletableFuture<Boolean> prefetch(String topic) {
+        return cache.getOrLoad(SurveyCache.key(topic, SurveyGenerationPipeline.PROMPT_HASH), () -> generateQuestions(topic))
+                .handle((questions, err) -> err == null && !questions.isEmpty());
+    }
+
+    public boolean isCached(String topic) {
+        return cache.contains(SurveyCache.key(topic, SurveyGenerationPipeline.PROMPT_HASH));
+    }
+
+    public SurveyGenerationPipeline.Stats getGenerationStats() {
+        return pipeline.getStats();
+    }
 
-        gptService.clearHistory();
+    public boolean isGenerating() {
+        return generationsInFlight.get() > 0;
+    }
 
-        ChatGPTResponse res = gptService.sendMessage(prompt1);
-        if (!res.isSuccess()) {
-            throw new IllegalStateException("Failed to recieve questions from the API: " + res.getErrorCode() + " " + res.getExtra());
+    public List<String> getRecentTopics() {
+        synchronized (recentTopics) {
+            return List.copyOf(recentTopics);
         }
+    }
 
-        String jsonBlob = ResponseUtils.extractFirstJsonBlock(res.getExtra());
-        List<Question> questions = SurveyJsonParser.parseQuestions(jsonBlob);
-
-        if (questions.isEmpty()) {
-            String prompt2 =
-                    "{\"questions\":[{\"text\":\"שאלה\",\"options\":[\"אפשרות 1\",\"אפשרות 2\"]}]} " +
-                            "נושא: \"" + topic + "\". " +
-                            "החזר אך ורק JSON נקי התואם במדויק לפורמט לעיל.";
-            ChatGPTResponse res2 = gptService.sendMessage(prompt2);
-            if (res2.isSuccess()) {
-                String blob2 = ResponseUtils.extractFirstJsonBlock(res2.getExtra());
-                questions = SurveyJsonParser.parseQuestions(blob2);
+    private void rememberTopic(String topic) {
+        synchronized (recentTopics) {
+            recentTopics.remove(topic);
+            recentTopics.add(topic);
+            if (recentTopics.size() > Constants.AI_RECENT_TOPICS) {
+                recentTopics.remove(recentTopics.iterator().next());
             }
         }
+    }
 
-        validateQuestions(questions);
-        Survey survey = new Survey(UUID.randomUUID().toString(), questions, creator);
-        community.setActiveSurvey(survey);
-        return survey;
+    // The endpoint keeps one conversation per API id and every generation starts by clearing
+    // it, so generations must not overlap: each one is chained after the previous.
+    private CompletableFuture<List<Question>> generateQuestions(String topic) {
+        synchronized (llmLock) {
+            generationsInFlight.incrementAndGet();
+            CompletableFuture<List<Question>> next = llmTail
+                    .handle((prev, err) -> topic)
+                    .thenCompose(pipeline::run)
+                    .whenComplete((questions, err) -> generationsInFlight.decrementAndGet());
+            llmTail = next;
+            return next;
+        }
+    }
+
+    public void scheduleLaunch(Survey survey, int delayMinutes, int closeAfterMinutes, Runnable send) {
+        long at = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(delayMinutes);
+        persistPlan(survey, () -> survey.planLaunch(at, closeAfterMinutes));
+        track(survey, scheduler.schedule(send, delayMinutes, TimeUnit.MINUTES));
     }
 
     public void scheduleSurveyClose(Survey survey, int delayMinutes) {
         int minutes = Math.min(5, Math.max(1, delayMinutes));
-        timer.schedule(new TimerTask() {
-            @Override public void run() {
-                closeSurveyIfOpen(survey);
-            }
-        }, minutes * 60L * 1000L);
+        long at = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(minutes);
+        persistPlan(survey, () -> survey.planClose(at));
+        track(survey, scheduler.schedule(() -> closeSurveyIfOpen(survey), minutes, TimeUnit.MINUTES));
+    }
+
+    // A survey restored from disk resumes its persisted plan: a launch still pending is sent
+    // through launch (with the answering window it was planned with) when it was due, a sent
+    // one closes at its deadline; both happen at once if the time has already passed. Surveys
+    // journaled before plans were persisted close at startTime + durationMinutes.
+    public void restorePlan(Survey survey, BiConsumer<Survey, Integer> launch) {
+        long now = System.currentTimeMillis();
+        if (survey.getCloseAt() > 0) {
+            scheduleCloseAt(survey, survey.getCloseAt() - now);
+        } else if (survey.getLaunchAt() > 0) {
+            int closeMinutes = survey.getLaunchCloseMinutes();
+            track(survey, scheduler.schedule(() -> launch.accept(survey, closeMinutes),
+                    Math.max(0, survey.getLaunchAt() - now), TimeUnit.MILLISECONDS));
+        } else {
+            LocalDateTime end = survey.getStartTime().plusMinutes(survey.getDurationMinutes());
+            scheduleCloseAt(survey, Duration.between(LocalDateTime.now(), end).toMillis());
+        }
     }
 
-    public void closeSurveyIfOpen(Survey survey) {
-        if (survey != null && survey.isActive()) {
-            survey.closeSurvey();
-            for (User u : community.getMembers()) {
+    private void scheduleCloseAt(Survey survey, long remainingMillis) {
+        track(survey, scheduler.schedule(() -> closeSurveyIfOpen(survey), Math.max(0, remainingMillis), TimeUnit.MILLISECONDS));
+    }
+
+    // the timer still runs if the plan can't be journaled; only a restart would lose it
+    private static void persistPlan(Survey survey, Runnable plan) {
+        try {
+            plan.run();
+        } catch (IllegalStateException e) {
+            LOG.log(System.Logger.Level.WARNING, "Schedule of survey " + survey.getId() + " not persisted", e);
+        }
+    }
+
+    public void scheduleReminder(Survey survey, long delay, TimeUnit unit, Runnable remind) {
+        track(survey, scheduler.schedule(() -> {
+            if (survey.isActive()) remind.run();
+        }, delay, unit));
+    }
+
+    // Several paths race to close a survey (timer, last vote); only the winner gets true
+    // and notifies the close listeners, so results go out exactly once.
+    public boolean closeSurveyIfOpen(Survey survey) {
+        if (survey != null && survey.closeSurvey()) {
+            Community owner = registry.communityOf(survey);
+            for (User u : (owner != null ? owner : community).getMembers()) {
                 u.resetVote();
             }
+            registry.retireSurvey(survey);
+            List<SurveyScheduler.Timeout> pending = lifecycle.remove(survey.getId());
+            if (pending != null) pending.forEach(SurveyScheduler.Timeout::cancel);
+            for (Consumer<Survey> l : closeListeners) l.accept(survey);
+            return true;
+        }
+        return false;
+    }
+
+    private void track(Survey survey, SurveyScheduler.Timeout timeout) {
+        lifecycle.computeIfAbsent(survey.getId(), k -> new CopyOnWriteArrayList<>()).add(timeout);
+    }
+
+    // Re-checks under the community's lock so concurrent creates can't exceed the limit.
+    private void activate(Community target, Survey survey) {
+        synchronized (target) {
+            validateCanCreate(target);
+            target.setActiveSurvey(survey);
         }
+        registry.registerSurvey(survey);
     }
 
-    private void validateCanCreate() {
-        if (community.getSize() < BotConfig.MIN_MEMBERS) {
+    private void validateCanCreate(Community target) {
+        if (target.getSize() < BotConfig.MIN_MEMBERS) {
             throw new IllegalStateException("Required atleast " + BotConfig.MIN_MEMBERS + " members in community to open a survey");
         }
-        if (community.hasActiveSurvey()) {
-            throw new IllegalStateException("There is an active survey, close it before creating a new one. ");
+        if (target.getActiveSurveys().size() >= BotConfig.MAX_ACTIVE_SURVEYS) {
+            throw new IllegalStateException("There are already " + BotConfig.MAX_ACTIVE_SURVEYS + " active surveys, close one before creating a new one. ");
         }
     }
 
@@ -0,0 +1,87 @@
+package org.example.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Pre-generates surveys into the SurveyManager's cache so "Generate" on a warmed topic is a
+// cache hit. One cycle every intervalMillis: skipped while an operator generation is running,
+// then checkBalance must report at least minBalance, then up to perCycle uncached topics are
+// generated one after another (configured topics first, then recently used ones).
+public class SurveyPrefetcher {
+
+    private final SurveyManager manager;
+    private final ChatGPTService gptService;
+    private final SurveyScheduler scheduler;
+    private final List<String> topics;
+    private final long intervalMillis;
+    private final int perCycle;
+    private final double minBalance;
+
+    private volatile boolean running;
+    private volatile SurveyScheduler.Timeout next;
+
+    public SurveyPrefetcher(SurveyManager manager, ChatGPTService gptService, List<String> topics,
+                            long intervalMillis, int perCycle, double minBalance) {
+        this.manager = manager;
+        this.gptService = gptService;
+        this.scheduler = manager.getScheduler();
+        this.topics = List.copyOf(topics);
+        this.intervalMillis = intervalMillis;
+        this.perCycle = perCycle;
+        this.minBalance = minBalance;
+    }
+
+    public void start() {
+        running = true;
+        next = scheduler.schedule(this::cycle, 0, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        running = false;
+        SurveyScheduler.Timeout t = next;
+        if (t != null) t.cancel();
+    }
+
+    private void cycle() {
+        if (!running) return;
+        List<String> due = dueTopics();
+        if (due.isEmpty() || manager.isGenerating()) {
+            reschedule();
+            return;
+        }
+        gptService.checkBalanceAsync()
+                .thenCompose(res -> {
+                    double balance = res.isSuccess() ? ChatGPTService.parseBalance(res.getExtra()) : Double.NaN;
+                    if (Double.isNaN(balance) || balance < minBalance) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    return prefetchAll(due, 0);
+                })
+                .whenComplete((r, err) -> reschedule());
+    }
+
+    // one at a time, and stop early if an operator starts generating in the meantime
+    private CompletableFuture<Void> prefetchAll(List<String> due, int i) {
+        if (i >= due.size() || !running || manager.isGenerating()) return CompletableFuture.completedFuture(null);
+        return manager.prefetch(due.get(i)).thenCompose(ok -> prefetchAll(due, i + 1));
+    }
+
+    private List<String> dueTopics() {
+        Set<String> candidates = new LinkedHashSet<>(topics);
+        candidates.addAll(manager.getRecentTopics().reversed());
+        List<String> due = new ArrayList<>();
+        for (String topic : candidates) {
+            if (due.size() >= perCycle) break;
+            if (!topic.isBlank() && !manager.isCached(topic)) due.add(topic);
+        }
+        return due;
+    }
+
+    private void reschedule() {
+        if (running) next = scheduler.schedule(this::cycle, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+}
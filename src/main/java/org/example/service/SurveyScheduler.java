@@ -0,0 +1,164 @@
+package org.example.service;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Hashed timing wheel driven by one daemon thread. schedule() and cancel() are O(1): they only
+// push onto lock-free queues that the wheel thread drains once per tick, so the buckets are
+// never touched by more than one thread. Expired tasks run on virtual threads so a slow task
+// (e.g. sending results) can't delay the next tick.
+public class SurveyScheduler {
+
+    public static final class Timeout {
+        private static final int PENDING = 0, CANCELLED = 1, EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadlineNanos;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private final SurveyScheduler scheduler;
+        private long remainingRounds;
+        private Timeout prev, next;
+        private Bucket bucket;
+
+        private Timeout(SurveyScheduler scheduler, Runnable task, long deadlineNanos) {
+            this.scheduler = scheduler;
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) return false;
+            scheduler.cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() { return state.get() == CANCELLED; }
+        public boolean isExpired() { return state.get() == EXPIRED; }
+    }
+
+    private static final class Bucket {
+        Timeout head, tail;
+
+        void add(Timeout t) {
+            t.bucket = this;
+            if (head == null) {
+                head = tail = t;
+            } else {
+                tail.next = t;
+                t.prev = tail;
+                tail = t;
+            }
+        }
+
+        void remove(Timeout t) {
+            if (t.prev != null) t.prev.next = t.next; else head = t.next;
+            if (t.next != null) t.next.prev = t.prev; else tail = t.prev;
+            t.prev = t.next = null;
+            t.bucket = null;
+        }
+    }
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final ExecutorService runner = Executors.newVirtualThreadPerTaskExecutor();
+    private final Thread worker;
+    private final long startNanos;
+    private volatile boolean running = true;
+    private volatile long lastLagNanos;
+    private volatile long maxLagNanos;
+    private long tick;
+
+    public SurveyScheduler() {
+        this(100, TimeUnit.MILLISECONDS, 512);
+    }
+
+    public SurveyScheduler(long tickDuration, TimeUnit unit, int wheelSize) {
+        if (Integer.bitCount(wheelSize) != 1) throw new IllegalArgumentException("wheelSize must be a power of two");
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheel = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) wheel[i] = new Bucket();
+        this.mask = wheelSize - 1;
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, "survey-scheduler");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        Timeout t = new Timeout(this, task, System.nanoTime() + unit.toNanos(Math.max(0, delay)));
+        added.add(t);
+        return t;
+    }
+
+    public long getLastLagMillis() { return lastLagNanos / 1_000_000L; }
+    public long getMaxLagMillis() { return maxLagNanos / 1_000_000L; }
+
+    public void shutdown() {
+        running = false;
+        worker.interrupt();
+        runner.shutdown();
+    }
+
+    private void run() {
+        while (running) {
+            long tickDeadline = startNanos + (tick + 1) * tickNanos;
+            long sleep = tickDeadline - System.nanoTime();
+            if (sleep > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (!running) return;
+                }
+            }
+            long lag = Math.max(0, System.nanoTime() - tickDeadline);
+            lastLagNanos = lag;
+            if (lag > maxLagNanos) maxLagNanos = lag;
+
+            removeCancelled();
+            transferAdded();
+            expire(wheel[(int) (tick & mask)], System.nanoTime());
+            tick++;
+        }
+    }
+
+    private void transferAdded() {
+        Timeout t;
+        while ((t = added.poll()) != null) {
+            if (t.isCancelled()) continue;
+            long ticksAway = Math.max(0, (t.deadlineNanos - startNanos) / tickNanos);
+            long target = Math.max(ticksAway, tick); // past deadlines go into the current bucket
+            t.remainingRounds = (target - tick) / wheel.length;
+            wheel[(int) (target & mask)].add(t);
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout t;
+        while ((t = cancelled.poll()) != null) {
+            if (t.bucket != null) t.bucket.remove(t);
+        }
+    }
+
+    private void expire(Bucket bucket, long now) {
+        Timeout t = bucket.head;
+        while (t != null) {
+            Timeout next = t.next;
+            if (t.remainingRounds <= 0 && t.deadlineNanos <= now + tickNanos) {
+                bucket.remove(t);
+                if (t.state.compareAndSet(Timeout.PENDING, Timeout.EXPIRED)) runner.execute(t.task);
+            } else if (t.isCancelled()) {
+                bucket.remove(t);
+            } else {
+                t.remainingRounds--;
+            }
+            t = next;
+        }
+    }
+}
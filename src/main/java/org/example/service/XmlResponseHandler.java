@@ -0,0 +1,265 @@
+package org.example.service;
+
+import org.example.model.ChatGPTResponse;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+// Parses the endpoint's XML reply (<success>, <errorCode>, <extra>) straight off the byte
+// stream: bytes are decoded chunk by chunk and fed to a small tag scanner, and only the
+// content of those three elements is ever buffered. Entities (&lt; &amp; &#1488; ...) and
+// CDATA sections are decoded. Once all three are seen the result completes; the rest of the
+// body is still drained (not cancelled) so the keep-alive connection can be reused.
+final class XmlResponseHandler implements HttpResponse.BodyHandler<ChatGPTResponse> {
+
+    private static final String[] FIELDS = {"success", "errorCode", "extra"};
+    private static final int MAX_TAG = 64;
+
+    @Override
+    public HttpResponse.BodySubscriber<ChatGPTResponse> apply(HttpResponse.ResponseInfo info) {
+        return new Subscriber(info.statusCode());
+    }
+
+    private static final class Subscriber implements HttpResponse.BodySubscriber<ChatGPTResponse> {
+
+        private final int status;
+        private final CompletableFuture<ChatGPTResponse> result = new CompletableFuture<>();
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final CharBuffer chars = CharBuffer.allocate(8192);
+        private ByteBuffer leftover = ByteBuffer.allocate(0);
+
+        private final String[] values = new String[FIELDS.length];
+        private int found;
+        private boolean sawContent;
+
+        // scanner state
+        private final StringBuilder tag = new StringBuilder();
+        private boolean inTag;
+        private int field = -1;              // index into FIELDS while inside one
+        private final StringBuilder raw = new StringBuilder();
+        private boolean inCdata;
+
+        Subscriber(int status) {
+            this.status = status;
+        }
+
+        @Override
+        public CompletionStage<ChatGPTResponse> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            for (ByteBuffer b : buffers) {
+                if (result.isDone()) return; // draining only
+                decode(b, false);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (result.isDone()) return;
+            decode(ByteBuffer.allocate(0), true);
+            finish();
+        }
+
+        private void decode(ByteBuffer in, boolean endOfInput) {
+            ByteBuffer src = in;
+            if (leftover.hasRemaining()) {
+                src = ByteBuffer.allocate(leftover.remaining() + in.remaining()).put(leftover).put(in).flip();
+            }
+            while (true) {
+                var r = decoder.decode(src, chars, endOfInput);
+                chars.flip();
+                while (chars.hasRemaining()) feed(chars.get());
+                chars.clear();
+                if (!r.isOverflow()) break;
+            }
+            if (endOfInput) {
+                decoder.flush(chars);
+                chars.flip();
+                while (chars.hasRemaining()) feed(chars.get());
+                chars.clear();
+            }
+            // an incomplete multi-byte sequence at the end of the chunk waits for the next one
+            leftover = src.hasRemaining() ? ByteBuffer.allocate(src.remaining()).put(src).flip() : ByteBuffer.allocate(0);
+        }
+
+        private void feed(char c) {
+            if (result.isDone()) return;
+            if (!sawContent && !Character.isWhitespace(c)) sawContent = true;
+
+            if (field >= 0) {
+                raw.append(c);
+                if (inCdata) {
+                    if (c == '>' && endsWith(raw, "]]>")) inCdata = false;
+                } else if (c == '[' && endsWith(raw, "<![CDATA[")) {
+                    inCdata = true;
+                } else if (c == '>' && endsWithCloseTag(FIELDS[field])) {
+                    raw.setLength(raw.length() - FIELDS[field].length() - 3);
+                    setValue(field, decodeText(raw));
+                    field = -1;
+                    raw.setLength(0);
+                }
+                return;
+            }
+
+            if (inTag) {
+                if (c == '>') {
+                    inTag = false;
+                    openTag();
+                } else if (tag.length() < MAX_TAG) {
+                    tag.append(c);
+                }
+            } else if (c == '<') {
+                inTag = true;
+                tag.setLength(0);
+            }
+        }
+
+        private void openTag() {
+            boolean selfClosing = tag.length() > 0 && tag.charAt(tag.length() - 1) == '/';
+            int end = 0;
+            while (end < tag.length() && !Character.isWhitespace(tag.charAt(end)) && tag.charAt(end) != '/') end++;
+            for (int i = 0; i < FIELDS.length; i++) {
+                if (values[i] == null && end == FIELDS[i].length() && regionEquals(tag, FIELDS[i])) {
+                    if (selfClosing) setValue(i, "");
+                    else field = i;
+                    return;
+                }
+            }
+        }
+
+        private void setValue(int i, String value) {
+            values[i] = value.trim();
+            if (++found == FIELDS.length) finish();
+        }
+
+        private void finish() {
+            if (!sawContent) {
+                result.complete(new ChatGPTResponse(false, "EMPTY_BODY", "HTTP " + status));
+                return;
+            }
+            boolean success = "true".equalsIgnoreCase(values[0]);
+            String errorCode = values[1];
+            if (!success && status >= 400 && errorCode == null) {
+                errorCode = "HTTP_" + status;
+            }
+            result.complete(new ChatGPTResponse(success, errorCode, values[2]));
+        }
+
+        private boolean endsWithCloseTag(String name) {
+            int n = raw.length(), len = name.length() + 3;
+            if (n < len || raw.charAt(n - len) != '<' || raw.charAt(n - len + 1) != '/') return false;
+            for (int i = 0; i < name.length(); i++) {
+                if (raw.charAt(n - len + 2 + i) != name.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        private static boolean endsWith(StringBuilder sb, String suffix) {
+            int n = sb.length(), len = suffix.length();
+            if (n < len) return false;
+            for (int i = 0; i < len; i++) {
+                if (sb.charAt(n - len + i) != suffix.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        private static boolean regionEquals(StringBuilder sb, String s) {
+            for (int i = 0; i < s.length(); i++) {
+                if (sb.charAt(i) != s.charAt(i)) return false;
+            }
+            return true;
+        }
+    }
+
+    // element text -> string: CDATA copied verbatim, entities decoded, anything unknown kept
+    static String decodeText(CharSequence raw) {
+        StringBuilder out = new StringBuilder(raw.length());
+        int n = raw.length();
+        for (int i = 0; i < n; i++) {
+            char c = raw.charAt(i);
+            if (c == '<' && startsWith(raw, i, "<![CDATA[")) {
+                int start = i + 9;
+                int end = indexOf(raw, "]]>", start);
+                if (end < 0) end = n;
+                out.append(raw, start, end);
+                i = Math.min(n, end + 3) - 1;
+            } else if (c == '&') {
+                int semi = -1;
+                for (int j = i + 1; j < n && j <= i + 10; j++) {
+                    if (raw.charAt(j) == ';') { semi = j; break; }
+                }
+                int cp = semi > 0 ? entity(raw, i + 1, semi) : -1;
+                if (cp >= 0) {
+                    out.appendCodePoint(cp);
+                    i = semi;
+                } else {
+                    out.append('&');
+                }
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static int entity(CharSequence s, int from, int to) {
+        String name = s.subSequence(from, to).toString();
+        switch (name) {
+            case "lt": return '<';
+            case "gt": return '>';
+            case "amp": return '&';
+            case "quot": return '"';
+            case "apos": return '\'';
+            default:
+                if (name.length() > 1 && name.charAt(0) == '#') {
+                    try {
+                        int cp = name.charAt(1) == 'x' || name.charAt(1) == 'X'
+                                ? Integer.parseInt(name.substring(2), 16)
+                                : Integer.parseInt(name.substring(1));
+                        return Character.isValidCodePoint(cp) ? cp : -1;
+                    } catch (NumberFormatException e) {
+                        return -1;
+                    }
+                }
+                return -1;
+        }
+    }
+
+    private static boolean startsWith(CharSequence s, int at, String prefix) {
+        if (at + prefix.length() > s.length()) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (s.charAt(at + i) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence s, String needle, int from) {
+        for (int i = from; i + needle.length() <= s.length(); i++) {
+            if (startsWith(s, i, needle)) return i;
+        }
+        return -1;
+    }
+}
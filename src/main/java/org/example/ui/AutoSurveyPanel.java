@@ -7,6 +7,7 @@ import org.example.service.SurveyManager;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
+import java.util.concurrent.CompletionException;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -108,23 +109,31 @@ public class AutoSurveyPanel extends JPanel {
             return;
         }
 
-        try {
-            gptService.clearHistory();
-            Survey survey = surveyManager.createAutoSurvey(topic, creator);
-            this.pendingSurvey = survey;
-
-            preview.setText(renderSurveyPreview(survey));
-            preview.setComponentOrientation(
-                    containsHebrew(preview.getText())
-                            ? ComponentOrientation.RIGHT_TO_LEFT
-                            : ComponentOrientation.LEFT_TO_RIGHT
-            );
-
-            status("Survey generated. ID=" + survey.getId() + "  |  " + survey.getQuestions().size() + " question(s).");
-            appLog.accept("Auto survey generated via API.");
-        } catch (Exception ex) {
-            status("Error: " + ex.getMessage());
+        // the LLM round-trips run off the EDT; the UI is only touched again in onGenerated
+        btnGenerate.setEnabled(false);
+        status("Generating survey for \"" + topic + "\"...");
+        surveyManager.createAutoSurveyAsync(topic, creator)
+                .whenComplete((survey, err) -> SwingUtilities.invokeLater(() -> onGenerated(survey, err)));
+    }
+
+    private void onGenerated(Survey survey, Throwable err) {
+        btnGenerate.setEnabled(true);
+        if (err != null) {
+            Throwable cause = err instanceof CompletionException && err.getCause() != null ? err.getCause() : err;
+            status("Error: " + cause.getMessage());
+            return;
         }
+        this.pendingSurvey = survey;
+
+        preview.setText(renderSurveyPreview(survey));
+        preview.setComponentOrientation(
+                containsHebrew(preview.getText())
+                        ? ComponentOrientation.RIGHT_TO_LEFT
+                        : ComponentOrientation.LEFT_TO_RIGHT
+        );
+
+        status("Survey generated. ID=" + survey.getId() + "  |  " + survey.getQuestions().size() + " question(s).");
+        appLog.accept("Auto survey generated via API.");
     }
 
     private void onCreate() {
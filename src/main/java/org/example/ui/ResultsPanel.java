@@ -1,19 +1,35 @@
 package org.example.ui;
 
-import org.example.model.Question;
+import org.example.model.ResultsSnapshot;
+import org.example.model.Survey;
 import org.example.model.SurveyResult;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.table.AbstractTableModel;
 import java.awt.*;
-import java.util.Comparator;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
+// Live results: the shown survey's vote listener only raises a flag, and a Swing timer
+// repaints at most FRAMES_PER_SECOND times a second from the survey's latest snapshot,
+// updating the existing table models in place. Tabs are only rebuilt for a new survey.
 public class ResultsPanel extends JPanel {
 
+    private static final int FRAMES_PER_SECOND = 10;
+
     private final JTabbedPane tabs = new JTabbedPane();
     private final Consumer<String> appLog;
+    private final JLabel summary = new JLabel(" ");
+    private final List<OptionsTableModel> models = new ArrayList<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final Consumer<Survey> voteListener = s -> dirty.set(true);
+    private final Timer frameTimer = new Timer(1000 / FRAMES_PER_SECOND, e -> onFrame());
+
+    private Survey survey;
+    private long shownVersion = -1;
 
     public ResultsPanel(Consumer<String> appLog) {
         this.appLog = appLog;
@@ -23,30 +39,111 @@ public class ResultsPanel extends JPanel {
         JLabel title = new JLabel("Results");
         title.setFont(title.getFont().deriveFont(Font.BOLD, 20f));
 
-        add(title, BorderLayout.NORTH);
+        JPanel header = new JPanel(new BorderLayout());
+        header.add(title, BorderLayout.NORTH);
+        header.add(summary, BorderLayout.SOUTH);
+
+        add(header, BorderLayout.NORTH);
         add(tabs, BorderLayout.CENTER);
+        frameTimer.setCoalesce(true);
     }
 
     public void showResults(SurveyResult result) {
+        Survey next = result.getSurvey();
+        if (next != survey) {
+            if (survey != null) survey.removeVoteListener(voteListener);
+            survey = next;
+            buildTabs(result.getSnapshot());
+            survey.addVoteListener(voteListener);
+        }
+        shownVersion = -1;
+        render(result.getSnapshot());
+        frameTimer.start();
+        appLog.accept("Results refreshed.");
+    }
+
+    public void stopLiveUpdates() {
+        frameTimer.stop();
+        if (survey != null) survey.removeVoteListener(voteListener);
+        survey = null;
+    }
+
+    private void buildTabs(ResultsSnapshot snapshot) {
         tabs.removeAll();
+        models.clear();
         int qi = 1;
-        for (Question q : result.getSurvey().getQuestions()) {
-            JPanel panel = new JPanel(new BorderLayout());
-            String[] cols = {"Option", "Percent"};
-            Object[][] rows = q.getResultsPercent().entrySet().stream()
-                    .sorted(Comparator.<Map.Entry<String, Double>>comparingDouble(Map.Entry::getValue).reversed())
-                    .map(e -> new Object[]{e.getKey(), e.getValue()})
-                    .toArray(Object[][]::new);
+        for (ResultsSnapshot.QuestionResult q : snapshot.getQuestions()) {
+            OptionsTableModel model = new OptionsTableModel(q.getOptionCount());
+            models.add(model);
 
-            JTable table = new JTable(rows, cols);
+            JTable table = new JTable(model);
             table.setRowHeight(24);
             table.setEnabled(false);
             table.setFillsViewportHeight(true);
 
+            JPanel panel = new JPanel(new BorderLayout());
             panel.add(new JLabel(q.getText()), BorderLayout.NORTH);
             panel.add(new JScrollPane(table), BorderLayout.CENTER);
             tabs.add("Q" + (qi++), panel);
         }
-        appLog.accept("Results refreshed.");
+    }
+
+    private void onFrame() {
+        if (survey == null) return;
+        if (!dirty.getAndSet(false)) {
+            if (!survey.isActive()) frameTimer.stop(); // nothing more can arrive
+            return;
+        }
+        render(survey.getResults());
+    }
+
+    private void render(ResultsSnapshot snapshot) {
+        if (snapshot.getVersion() == shownVersion) return;
+        shownVersion = snapshot.getVersion();
+        List<ResultsSnapshot.QuestionResult> questions = snapshot.getQuestions();
+        for (int i = 0; i < questions.size() && i < models.size(); i++) {
+            models.get(i).update(questions.get(i));
+        }
+        summary.setText(snapshot.getResponses() + " response(s)" + (survey.isActive() ? " · live" : " · closed"));
+    }
+
+    // One row per option, ordered by rank; rows are rewritten in place on each frame.
+    private static final class OptionsTableModel extends AbstractTableModel {
+
+        private static final String[] COLUMNS = {"Option", "Votes", "Percent"};
+
+        private final String[] options;
+        private final long[] votes;
+        private final double[] percent;
+
+        OptionsTableModel(int rows) {
+            options = new String[rows];
+            votes = new long[rows];
+            percent = new double[rows];
+        }
+
+        void update(ResultsSnapshot.QuestionResult q) {
+            int rows = Math.min(options.length, q.getOptionCount());
+            for (int rank = 0; rank < rows; rank++) {
+                int i = q.getRankedOption(rank);
+                options[rank] = q.getOptions().get(i);
+                votes[rank] = q.getCount(i);
+                percent[rank] = q.getPercent(i);
+            }
+            if (rows > 0) fireTableRowsUpdated(0, rows - 1);
+        }
+
+        @Override public int getRowCount() { return options.length; }
+        @Override public int getColumnCount() { return COLUMNS.length; }
+        @Override public String getColumnName(int column) { return COLUMNS[column]; }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return switch (column) {
+                case 0 -> options[row];
+                case 1 -> votes[row];
+                default -> percent[row];
+            };
+        }
     }
 }
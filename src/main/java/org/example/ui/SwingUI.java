@@ -15,8 +15,6 @@ import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.plaf.FontUIResource;
 import java.awt.*;
-import java.util.Timer;
-import java.util.TimerTask;
 
 public class SwingUI extends JFrame {
 
@@ -37,8 +35,6 @@ public class SwingUI extends JFrame {
     private AutoSurveyPanel autoPanel;
     private ResultsPanel resultsPanel;
 
-    private final Timer uiTimer = new Timer(true);
-
     public SwingUI(Community community,
                    SurveyManager surveyManager,
                    ChatGPTService gptService,
@@ -150,15 +146,9 @@ public class SwingUI extends JFrame {
             int autoClose = 5; // לפי הדרישה
             if (sendDelayMinutes > 0) {
                 log("Survey will be sent in " + sendDelayMinutes + " minute(s). Auto-close: " + autoClose + " min after send.");
-                uiTimer.schedule(new TimerTask() {
-                    @Override public void run() {
-                        bot.sendSurveyToCommunity(survey, autoClose);
-                        log("Survey sent to community via Telegram (auto-close " + autoClose + " min).");
-                    }
-                }, sendDelayMinutes * 60L * 1000L);
+                surveyManager.scheduleLaunch(survey, sendDelayMinutes, autoClose, () -> launchSurvey(survey, autoClose));
             } else {
-                bot.sendSurveyToCommunity(survey, autoClose);
-                log("Survey sent to community via Telegram (auto-close " + autoClose + " min).");
+                launchSurvey(survey, autoClose);
             }
         } else {
             log("No Telegram bot instance. Survey not sent. Scheduling local auto-close in 5 minutes.");
@@ -166,6 +156,15 @@ public class SwingUI extends JFrame {
         }
     }
 
+    private void launchSurvey(Survey survey, int autoClose) {
+        SwingUtilities.invokeLater(() -> log("Sending survey to " + community.getSize() + " member(s) via Telegram..."));
+        bot.sendSurveyToCommunity(survey, autoClose,
+                        progress -> SwingUtilities.invokeLater(() -> log("Survey delivery: " + progress)))
+                .thenAccept(report -> SwingUtilities.invokeLater(() ->
+                        log("Survey sent to community via Telegram in " + report.elapsedMillis() +
+                                " ms (auto-close " + autoClose + " min).")));
+    }
+
     private void updateStatusBar() {
         statusMembers.setText("Members: " + community.getSize());
         String s = (community.getActiveSurvey() != null && community.getActiveSurvey().isActive()) ? "yes" : "none";
@@ -6,4 +6,35 @@ public class BotConfig {
     public static final long ADMIN_TELEGRAM_ID = 7436649617L;
     public static final boolean DEV_MODE = false;
     public static final int MIN_MEMBERS = DEV_MODE ? 1 : 3;
+    public static final String DATA_DIR = "data";
+    // Overlapping surveys allowed per community
+    public static final int MAX_ACTIVE_SURVEYS = 5;
+    // Communities served by this process; members join one with /start <id> (plain /start = 0)
+    public static final long[] COMMUNITY_IDS = {0L};
+
+    // Telegram Bot API limits: ~30 msg/s overall, ~1 msg/s per chat with short bursts allowed
+    public static final double GLOBAL_SEND_RATE_PER_SEC = 30;
+    public static final int GLOBAL_SEND_BURST = 30;
+    public static final double PER_CHAT_SEND_RATE_PER_SEC = 1;
+    public static final int PER_CHAT_SEND_BURST = 4;
+    // Joins inside one window are announced to the other members as a single digest
+    public static final int JOIN_ANNOUNCE_WINDOW_SECONDS = 15;
+
+    // Webhook receive mode (long polling when false). The public URL must be HTTPS and
+    // forward to WEBHOOK_PORT + WEBHOOK_PATH on this machine.
+    public static final boolean WEBHOOK_MODE = false;
+    public static final String WEBHOOK_PUBLIC_URL = "https://example.com/telegram";
+    public static final int WEBHOOK_PORT = 8443;
+    public static final String WEBHOOK_PATH = "/telegram";
+    public static final String WEBHOOK_SECRET = "change-me-survey-bot-secret";
+
+    // Incoming updates: per-chat ordered lanes, bounded per chat and overall; votes and joins
+    // may use the overflow on top of a full lane
+    public static final int UPDATE_LANE_CAPACITY = 32;
+    public static final int UPDATE_LANE_OVERFLOW = 64;
+    public static final int MAX_PENDING_UPDATES = 10_000;
+
+    // Local Prometheus-format scrape endpoint (loopback only, 0 disables it); JMX is always on
+    public static final int METRICS_PORT = 9464;
+    public static final String METRICS_PATH = "/metrics";
 }
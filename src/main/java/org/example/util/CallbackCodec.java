@@ -0,0 +1,121 @@
+package org.example.util;
+
+// callback_data for survey buttons.
+//
+//   v1:     "1" + 8 base64url chars (48-bit survey handle) + 1 char (question << 2 | option)
+//   legacy: "sv|<surveyId>|q|<question>|o|<option>"  (still accepted for old messages)
+//
+// decode() never allocates: it returns everything packed in one long,
+//   (handle << 8) | (question << 4) | option,  or -1 if the data isn't ours.
+// The handle is a 48-bit FNV-1a hash of the survey id, so both formats of the same
+// button resolve to the same survey and no handle table has to survive restarts.
+public final class CallbackCodec {
+
+    private static final char VERSION_1 = '1';
+    private static final int HANDLE_CHARS = 8;
+    private static final int V1_LENGTH = 1 + HANDLE_CHARS + 1;
+    private static final long HANDLE_MASK = (1L << 48) - 1;
+
+    private static final char[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final byte[] DECODE = new byte[128];
+
+    static {
+        java.util.Arrays.fill(DECODE, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) DECODE[ALPHABET[i]] = (byte) i;
+    }
+
+    private CallbackCodec() {}
+
+    public static long surveyHandle(CharSequence surveyId) {
+        return fnv48(surveyId, 0, surveyId.length());
+    }
+
+    public static String encode(long handle, int question, int option) {
+        if (question < 0 || question > 3 || option < 0 || option > 3) {
+            throw new IllegalArgumentException("question and option must be 0-3");
+        }
+        char[] out = new char[V1_LENGTH];
+        out[0] = VERSION_1;
+        for (int i = HANDLE_CHARS; i >= 1; i--) {
+            out[i] = ALPHABET[(int) (handle & 63)];
+            handle >>>= 6;
+        }
+        out[V1_LENGTH - 1] = ALPHABET[(question << 2) | option];
+        return new String(out);
+    }
+
+    public static long decode(CharSequence data) {
+        if (data == null || data.isEmpty()) return -1;
+        if (data.charAt(0) == VERSION_1 && data.length() == V1_LENGTH) return decodeV1(data);
+        return decodeLegacy(data);
+    }
+
+    public static long handle(long packed) { return packed >>> 8; }
+    public static int question(long packed) { return (int) ((packed >>> 4) & 0xF); }
+    public static int option(long packed) { return (int) (packed & 0xF); }
+
+    private static long decodeV1(CharSequence data) {
+        long handle = 0;
+        for (int i = 1; i <= HANDLE_CHARS; i++) {
+            int v = digit(data.charAt(i));
+            if (v < 0) return -1;
+            handle = (handle << 6) | v;
+        }
+        int qo = digit(data.charAt(V1_LENGTH - 1));
+        if (qo < 0 || qo > 15) return -1;
+        return pack(handle, qo >>> 2, qo & 3);
+    }
+
+    private static long decodeLegacy(CharSequence data) {
+        int n = data.length();
+        if (n < 3 || data.charAt(0) != 's' || data.charAt(1) != 'v' || data.charAt(2) != '|') return -1;
+        int idStart = 3;
+        int idEnd = indexOf(data, '|', idStart);
+        if (idEnd < 0) return -1;
+        int p = idEnd;
+        if (p + 3 > n || data.charAt(p + 1) != 'q' || data.charAt(p + 2) != '|') return -1;
+        p += 3;
+        int qEnd = indexOf(data, '|', p);
+        if (qEnd < 0) return -1;
+        int question = parseSmallInt(data, p, qEnd);
+        p = qEnd;
+        if (p + 3 > n || data.charAt(p + 1) != 'o' || data.charAt(p + 2) != '|') return -1;
+        int option = parseSmallInt(data, p + 3, n);
+        if (question < 0 || option < 0 || question > 15 || option > 15) return -1;
+        return pack(fnv48(data, idStart, idEnd), question, option);
+    }
+
+    private static long pack(long handle, int question, int option) {
+        return ((handle & HANDLE_MASK) << 8) | ((long) question << 4) | option;
+    }
+
+    private static int digit(char c) {
+        return c < 128 ? DECODE[c] : -1;
+    }
+
+    private static int indexOf(CharSequence s, char c, int from) {
+        for (int i = from; i < s.length(); i++) if (s.charAt(i) == c) return i;
+        return -1;
+    }
+
+    private static int parseSmallInt(CharSequence s, int from, int to) {
+        if (from >= to || to - from > 4) return -1;
+        int v = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    private static long fnv48(CharSequence s, int from, int to) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return (h ^ (h >>> 48)) & HANDLE_MASK;
+    }
+}
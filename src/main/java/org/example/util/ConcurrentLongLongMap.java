@@ -0,0 +1,115 @@
+package org.example.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongUnaryOperator;
+
+// Primitive long -> long hash map with open addressing. Every key reads as 0 until it is
+// updated, so 0 doubles as "absent"; key 0 itself is reserved. Updates are CAS loops on the
+// value slot under the shared side of a StampedLock; resize and clear take the exclusive side.
+public class ConcurrentLongLongMap {
+
+    private static final int MIN_CAPACITY = 64;
+
+    private final StampedLock lock = new StampedLock();
+    private final AtomicInteger size = new AtomicInteger();
+    private AtomicLongArray keys;
+    private AtomicLongArray values;
+    private int mask;
+
+    public ConcurrentLongLongMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    public long get(long key) {
+        long stamp = lock.readLock();
+        try {
+            int i = mix(key) & mask;
+            while (true) {
+                long k = keys.get(i);
+                if (k == key) return values.get(i);
+                if (k == 0) return 0L;
+                i = (i + 1) & mask;
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Atomically replaces the value of key with fn(value) and returns the new value.
+    public long update(long key, LongUnaryOperator fn) {
+        if (key == 0) throw new IllegalArgumentException("Key 0 is reserved. ");
+        long result;
+        boolean claimed = false;
+        long stamp = lock.readLock();
+        try {
+            int i = mix(key) & mask;
+            while (true) {
+                long k = keys.get(i);
+                if (k == 0) {
+                    if (!keys.compareAndSet(i, 0, key)) continue;
+                    claimed = true;
+                    k = key;
+                }
+                if (k == key) break;
+                i = (i + 1) & mask;
+            }
+            long prev, next;
+            do {
+                prev = values.get(i);
+                next = fn.applyAsLong(prev);
+            } while (!values.compareAndSet(i, prev, next));
+            result = next;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        if (claimed && size.incrementAndGet() * 4L > (mask + 1L) * 3L) grow();
+        return result;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            allocate(MIN_CAPACITY);
+            size.set(0);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void grow() {
+        long stamp = lock.writeLock();
+        try {
+            if (size.get() * 4L <= (mask + 1L) * 3L) return;
+            AtomicLongArray oldKeys = keys;
+            AtomicLongArray oldValues = values;
+            allocate(oldKeys.length() * 2);
+            for (int j = 0; j < oldKeys.length(); j++) {
+                long k = oldKeys.get(j);
+                if (k == 0) continue;
+                int i = mix(k) & mask;
+                while (keys.get(i) != 0) i = (i + 1) & mask;
+                keys.set(i, k);
+                values.set(i, oldValues.get(j));
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new AtomicLongArray(capacity);
+        values = new AtomicLongArray(capacity);
+        mask = capacity - 1;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -3,4 +3,39 @@ package org.example.util;
 public class Constants {
     public static final String USER_ID = "209166529";
     public static final String API_BASE_URL = "https://app.seker.live/fm1/";
+
+    // LLM endpoint: an attempt is abandoned after the request timeout and retried with
+    // jittered backoff; after enough consecutive failures the breaker fails fast for a while.
+    public static final int API_CONNECT_TIMEOUT_SECONDS = 5;
+    public static final int API_REQUEST_TIMEOUT_SECONDS = 60;
+    public static final int API_MAX_ATTEMPTS = 3;
+    public static final int API_BACKOFF_BASE_MILLIS = 500;
+    public static final int API_BREAKER_FAILURE_THRESHOLD = 5;
+    public static final int API_BREAKER_OPEN_SECONDS = 30;
+
+    // Optional hedging of the survey-generation prompt (off by default: a hedge is a second paid
+    // call). A twin request goes out once the first is slower than API_HEDGE_PERCENTILE of recent
+    // calls. All hedges together may spend API_HEDGE_BUDGET_FRACTION of the balance read at
+    // startup; API_SEND_MESSAGE_COST is what one send-message costs, in check-balance's unit.
+    public static final boolean API_HEDGING_ENABLED = false;
+    public static final double API_HEDGE_PERCENTILE = 0.9;
+    public static final int API_HEDGE_DEFAULT_DELAY_MILLIS = 8000;
+    public static final int API_HEDGE_MIN_SAMPLES = 20;
+    public static final double API_HEDGE_BUDGET_FRACTION = 0.05;
+    public static final double API_SEND_MESSAGE_COST = 1;
+
+    // Generated surveys are reused per normalized topic (see SurveyCache)
+    public static final int AI_CACHE_MAX_ENTRIES = 200;
+    public static final int AI_CACHE_TTL_HOURS = 24;
+    public static final String AI_CACHE_FILE = "survey-cache.jsonl";
+    public static final int AI_RECENT_TOPICS = 10;
+
+    // Optional background pre-generation (off by default: it spends API balance). Each cycle
+    // warms up to AI_PREFETCH_PER_CYCLE uncached topics, configured ones first, then recent ones,
+    // only while no operator generation is running and the balance is above the floor.
+    public static final boolean AI_PREFETCH_ENABLED = false;
+    public static final String[] AI_PREFETCH_TOPICS = {};
+    public static final int AI_PREFETCH_INTERVAL_MINUTES = 10;
+    public static final int AI_PREFETCH_PER_CYCLE = 3;
+    public static final double AI_PREFETCH_MIN_BALANCE = 20;
 }
@@ -6,160 +6,240 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+// Single pass over the LLM output: find the "questions" key, then walk its array with a small
+// tokenizer that builds each Question as its fields go by. Nothing is copied except the
+// decoded text/option strings themselves; one StringBuilder is reused for every string token.
+// Lenient on purpose, since this is model output: unknown fields and non-string options are
+// skipped, stray characters are ignored, and if the text is cut off the questions completed
+// before the cut are returned.
 public class SurveyJsonParser {
 
+    private static final int MAX_QUESTIONS = 3;
+    // parseAllQuestions still stops somewhere: model output is not trusted to be small
+    private static final int LENIENT_MAX_QUESTIONS = 16;
+
     public static List<Question> parseQuestions(String json) {
-        if (json == null) return Collections.emptyList();
-        String array = extractQuestionsArray(json);
-        if (array == null) return Collections.emptyList();
+        return parseQuestions((CharSequence) json);
+    }
 
-        List<String> objs = splitTopLevelObjects(array);
-        List<Question> out = new ArrayList<>();
+    // only well-formed questions (text + 2-4 options), at most 3
+    public static List<Question> parseQuestions(CharSequence json) {
+        return parse(json, true);
+    }
 
-        for (String obj : objs) {
-            String text = extractStringValue(obj, "text");
-            List<String> options = extractStringArray(obj, "options");
-            if (text != null && options != null && options.size() >= 2 && options.size() <= 4) {
-                out.add(new Question(text, options));
+    // every question object with a text and an options array, whatever the option count
+    // (up to 16 questions); for callers that repair or report what the model got wrong
+    public static List<Question> parseAllQuestions(CharSequence json) {
+        return parse(json, false);
+    }
+
+    private static List<Question> parse(CharSequence json, boolean strict) {
+        if (json == null) return Collections.emptyList();
+        // the first "questions" whose value is an array (an earlier one may be a nested string)
+        Tokenizer t = null;
+        for (int key = indexOfKey(json, "questions", 0); key >= 0; key = indexOfKey(json, "questions", key)) {
+            Tokenizer candidate = new Tokenizer(json, key);
+            candidate.skipWhitespace();
+            if (candidate.peek() == ':') candidate.pos++;
+            candidate.skipWhitespace();
+            if (candidate.peek() == '[') {
+                t = candidate;
+                break;
             }
         }
+        if (t == null) return Collections.emptyList();
+        t.pos++;
 
-        if (out.size() > 3) return new ArrayList<>(out.subList(0, 3));
+        List<Question> out = new ArrayList<>();
+        while (out.size() < (strict ? MAX_QUESTIONS : LENIENT_MAX_QUESTIONS)) {
+            t.skipWhitespace();
+            int c = t.peek();
+            if (c < 0 || c == ']') break;
+            if (c == ',') {
+                t.pos++;
+            } else if (c == '{') {
+                Question q = t.readQuestion(strict);
+                if (q != null) out.add(q);
+            } else if (!t.skipValue()) {
+                break;
+            }
+        }
         return out;
     }
 
-    private static String extractQuestionsArray(String json) {
-        int key = json.indexOf("\"questions\"");
-        if (key < 0) return null;
-
-        int bracketStart = json.indexOf('[', key);
-        if (bracketStart < 0) return null;
-
-        boolean inString = false, escape = false;
-        int depth = 0;
-
-        for (int i = bracketStart; i < json.length(); i++) {
-            char c = json.charAt(i);
-            if (inString) {
-                if (escape) { escape = false; }
-                else if (c == '\\') { escape = true; }
-                else if (c == '"') { inString = false; }
-            } else {
-                if (c == '"') { inString = true; }
-                else if (c == '[') depth++;
-                else if (c == ']') {
-                    depth--;
-                    if (depth == 0) {
-                        return json.substring(bracketStart, i + 1);
-                    }
-                }
+    // first "key": "value" string field of the top-level object in json, or null
+    public static String parseStringField(CharSequence json, String key) {
+        if (json == null) return null;
+        Tokenizer t = new Tokenizer(json, 0);
+        while (t.peek() >= 0 && t.peek() != '{') t.pos++;
+        if (t.peek() < 0) return null;
+        t.pos++;
+        while (true) {
+            t.skipWhitespace();
+            int c = t.peek();
+            if (c < 0 || c == '}') return null;
+            if (c != '"') { t.pos++; continue; }
+            if (!t.readString()) return null;
+            boolean match = key.contentEquals(t.sb);
+            t.skipWhitespace();
+            if (t.peek() == ':') t.pos++;
+            t.skipWhitespace();
+            if (match && t.peek() == '"') {
+                return t.readString() ? t.sb.toString() : null;
             }
+            if (!t.skipValue()) return null;
         }
-        return null;
     }
 
-    private static List<String> splitTopLevelObjects(String arrayWithBrackets) {
-        List<String> list = new ArrayList<>();
-        int i = 0;
-        if (arrayWithBrackets.length() >= 2 && arrayWithBrackets.charAt(0) == '[') i = 1;
-        int end = arrayWithBrackets.length() - 1;
-
-        boolean inString = false, escape = false;
-        int depth = 0, start = -1;
-
-        for (; i < end; i++) {
-            char c = arrayWithBrackets.charAt(i);
-            if (inString) {
-                if (escape) { escape = false; }
-                else if (c == '\\') { escape = true; }
-                else if (c == '"') { inString = false; }
-            } else {
-                if (c == '"') { inString = true; }
-                else if (c == '{') {
-                    if (depth == 0) start = i;
-                    depth++;
-                } else if (c == '}') {
-                    depth--;
-                    if (depth == 0 && start != -1) {
-                        list.add(arrayWithBrackets.substring(start, i + 1));
-                        start = -1;
-                    }
-                }
+    // position just after the first "name" token (quoted, exact) at or after from
+    private static int indexOfKey(CharSequence s, String name, int from) {
+        int n = s.length(), len = name.length();
+        outer:
+        for (int i = from; i + len + 1 < n; i++) {
+            if (s.charAt(i) != '"' || s.charAt(i + len + 1) != '"') continue;
+            for (int j = 0; j < len; j++) {
+                if (s.charAt(i + 1 + j) != name.charAt(j)) continue outer;
             }
+            return i + len + 2;
         }
-        return list;
+        return -1;
     }
 
-    private static String extractStringValue(String obj, String key) {
-        String k = "\"" + key + "\"";
-        int idx = obj.indexOf(k);
-        if (idx < 0) return null;
-
-        int colon = obj.indexOf(':', idx + k.length());
-        if (colon < 0) return null;
-
-        int i = colon + 1;
-        while (i < obj.length() && Character.isWhitespace(obj.charAt(i))) i++;
-        if (i >= obj.length() || obj.charAt(i) != '"') return null;
-        i++;
-
-        StringBuilder sb = new StringBuilder();
-        boolean escape = false;
-        for (; i < obj.length(); i++) {
-            char c = obj.charAt(i);
-            if (escape) { sb.append(c); escape = false; }
-            else if (c == '\\') { escape = true; }
-            else if (c == '"') { break; }
-            else { sb.append(c); }
+    private static final class Tokenizer {
+
+        private final CharSequence s;
+        private final StringBuilder sb = new StringBuilder(64);
+        private int pos;
+
+        Tokenizer(CharSequence s, int pos) {
+            this.s = s;
+            this.pos = pos;
+        }
+
+        int peek() {
+            return pos < s.length() ? s.charAt(pos) : -1;
+        }
+
+        void skipWhitespace() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
         }
-        return sb.toString();
-    }
 
-    private static List<String> extractStringArray(String obj, String key) {
-        String k = "\"" + key + "\"";
-        int idx = obj.indexOf(k);
-        if (idx < 0) return null;
-
-        int bracketStart = obj.indexOf('[', idx + k.length());
-        if (bracketStart < 0) return null;
-
-        boolean inString = false, escape = false;
-        int depth = 0, end = -1;
-
-        for (int i = bracketStart; i < obj.length(); i++) {
-            char c = obj.charAt(i);
-            if (inString) {
-                if (escape) { escape = false; }
-                else if (c == '\\') { escape = true; }
-                else if (c == '"') { inString = false; }
-            } else {
-                if (c == '"') { inString = true; }
-                else if (c == '[') depth++;
-                else if (c == ']') {
-                    depth--;
-                    if (depth == 0) { end = i; break; }
+        // at '{': returns the question, or null if it is cut off, lacks text or options, or
+        // (strict) doesn't have 2-4 options
+        Question readQuestion(boolean strict) {
+            pos++;
+            String text = null;
+            List<String> options = null;
+            while (true) {
+                skipWhitespace();
+                int c = peek();
+                if (c < 0) return null;
+                if (c == '}') { pos++; break; }
+                if (c != '"') { pos++; continue; } // commas and stray characters
+                if (!readString()) return null;
+                boolean isText = "text".contentEquals(sb);
+                boolean isOptions = !isText && "options".contentEquals(sb);
+                skipWhitespace();
+                if (peek() == ':') pos++;
+                skipWhitespace();
+
+                if (isText && text == null && peek() == '"') {
+                    if (!readString()) return null;
+                    text = sb.toString();
+                } else if (isOptions && options == null && peek() == '[') {
+                    options = readStringArray();
+                    if (options == null) return null;
+                } else if (!skipValue()) {
+                    return null;
                 }
             }
+            if (text == null || options == null) return null;
+            if (strict && (options.size() < 2 || options.size() > 4)) return null;
+            return new Question(text, options);
         }
-        if (end == -1) return null;
-
-        String inner = obj.substring(bracketStart + 1, end);
-        List<String> out = new ArrayList<>();
-        boolean collecting = false;
-        StringBuilder sb = new StringBuilder();
-        escape = false;
-
-        for (int j = 0; j < inner.length(); j++) {
-            char c = inner.charAt(j);
-            if (!collecting) {
-                if (c == '"') { collecting = true; sb.setLength(0); }
-            } else {
-                if (escape) { sb.append(c); escape = false; }
-                else if (c == '\\') { escape = true; }
-                else if (c == '"') { out.add(sb.toString()); collecting = false; }
-                else { sb.append(c); }
+
+        // at '[': the string elements (others skipped), or null if cut off
+        private List<String> readStringArray() {
+            pos++;
+            List<String> out = new ArrayList<>(4);
+            while (true) {
+                skipWhitespace();
+                int c = peek();
+                if (c < 0) return null;
+                if (c == ']') { pos++; return out; }
+                if (c == ',') { pos++; continue; }
+                if (c == '"') {
+                    if (!readString()) return null;
+                    out.add(sb.toString());
+                } else if (!skipValue()) {
+                    return null;
+                }
             }
         }
-        return out;
+
+        // at '"': decodes the string into sb; false if it never closes
+        boolean readString() {
+            sb.setLength(0);
+            pos++;
+            int n = s.length();
+            while (pos < n) {
+                char c = s.charAt(pos++);
+                if (c == '"') return true;
+                if (c != '\\') { sb.append(c); continue; }
+                if (pos >= n) return false;
+                char e = s.charAt(pos++);
+                switch (e) {
+                    case 'n' -> sb.append('\n');
+                    case 't' -> sb.append('\t');
+                    case 'r' -> sb.append('\r');
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'u' -> {
+                        int cp = hex4(pos);
+                        if (cp >= 0) { sb.append((char) cp); pos += 4; }
+                        else sb.append('u'); // malformed: keep it as text
+                    }
+                    default -> sb.append(e); // \" \\ \/ and anything unknown
+                }
+            }
+            return false;
+        }
+
+        private int hex4(int at) {
+            if (at + 4 > s.length()) return -1;
+            int v = 0;
+            for (int i = at; i < at + 4; i++) {
+                int d = Character.digit(s.charAt(i), 16);
+                if (d < 0) return -1;
+                v = (v << 4) | d;
+            }
+            return v;
+        }
+
+        // skips one value of any kind; false if the input ends inside it
+        boolean skipValue() {
+            int c = peek();
+            if (c < 0) return false;
+            if (c == '"') return readString();
+            if (c == '{' || c == '[') {
+                int depth = 0;
+                while (pos < s.length()) {
+                    char ch = s.charAt(pos);
+                    if (ch == '"') {
+                        if (!readString()) return false;
+                        continue;
+                    }
+                    pos++;
+                    if (ch == '{' || ch == '[') depth++;
+                    else if ((ch == '}' || ch == ']') && --depth == 0) return true;
+                }
+                return false;
+            }
+            // literal (number, true, null, ...) or stray character
+            int start = pos;
+            while (pos < s.length() && ",}] \t\r\n".indexOf(s.charAt(pos)) < 0) pos++;
+            if (pos == start) pos++;
+            return true;
+        }
     }
 }
@@ -0,0 +1,52 @@
+package org.example.bot;
+
+import org.example.model.Community;
+import org.example.model.User;
+import org.example.service.SurveyScheduler;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// A digest that failed to send must not count as announced: the member's next digest covers
+// everyone who joined since the last one they actually got.
+class JoinAnnouncerTest {
+
+    @Test
+    void failedDigestIsFoldedIntoTheNextOne() throws Exception {
+        Community community = new Community(Community.DEFAULT_ID);
+        List<String> delivered = new CopyOnWriteArrayList<>();
+        AtomicBoolean failFirst = new AtomicBoolean(true);
+        RateLimitedSender sender = new RateLimitedSender(m -> {
+            if (failFirst.getAndSet(false)) throw new IllegalStateException("network down");
+            delivered.add(m.getChatId() + ": " + m.getText());
+        });
+        JoinAnnouncer announcer = new JoinAnnouncer(community, sender, new SurveyScheduler(), 1);
+
+        community.addMember(new User(1, "first"));
+        community.addMember(new User(2, "second"));
+        announcer.memberJoined();
+        awaitUntil(() -> !failFirst.get());
+        Thread.sleep(200); // let the digest pass finish with nothing delivered
+        assertEquals(List.of(), delivered);
+
+        community.addMember(new User(3, "third"));
+        announcer.memberJoined();
+        awaitUntil(() -> delivered.size() >= 2);
+
+        assertEquals(List.of("1: 2 new members joined, total 3", "2: A new member has joined: third (Total: 3)"),
+                delivered.stream().sorted().toList());
+    }
+
+    private static void awaitUntil(BooleanSupplier done) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!done.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("digest not sent in time");
+            Thread.sleep(5);
+        }
+    }
+}
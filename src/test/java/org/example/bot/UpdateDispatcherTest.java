@@ -0,0 +1,132 @@
+package org.example.bot;
+
+import org.example.metrics.Metrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// One chat's lane is held full by a handler that never returns; submit must keep returning at
+// once for that chat and must still hand other chats' updates to the handler.
+class UpdateDispatcherTest {
+
+    private static final long FLOODER = 1;
+    private static final long OTHER = 2;
+    private static final int LANE = 4;
+    private static final int OVERFLOW = 3;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger ids = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    void saturatedLaneDoesNotStallOtherChats() throws Exception {
+        List<Long> handled = new CopyOnWriteArrayList<>();
+        CountDownLatch otherHandled = new CountDownLatch(1);
+        UpdateDispatcher dispatcher = new UpdateDispatcher(u -> {
+            long from = u.getCallbackQuery() != null ? u.getCallbackQuery().getFrom().getId() : u.getMessage().getChatId();
+            if (from == FLOODER) await(release);
+            handled.add(from);
+            if (from == OTHER) otherHandled.countDown();
+        }, Update::hasCallbackQuery, LANE, OVERFLOW, 1_000);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            int accepted = 0;
+            for (int i = 0; i < 100; i++) {
+                if (dispatcher.submit(callback(FLOODER))) accepted++;
+            }
+            // the lane, its overflow, and nothing more; the rest is rejected without waiting
+            assertEquals(LANE + OVERFLOW, accepted);
+            assertFalse(dispatcher.submit(message(FLOODER)));
+            assertTrue(dispatcher.submit(callback(OTHER)));
+        });
+
+        assertTrue(otherHandled.await(5, TimeUnit.SECONDS), "second chat's callback was not processed");
+        assertFalse(handled.contains(FLOODER));
+
+        UpdateDispatcher.Stats stats = dispatcher.getStats();
+        assertEquals(101 - LANE - OVERFLOW, stats.rejected());
+        assertEquals(OVERFLOW, stats.overflowed());
+        assertEquals(0, stats.blockedMillis());
+    }
+
+    @Test
+    void overflowIsOnlyForMustDeliverUpdates() {
+        UpdateDispatcher dispatcher = new UpdateDispatcher(u -> await(release), Update::hasCallbackQuery, LANE, OVERFLOW, 1_000);
+        // the update being handled stays at the head of its lane, so exactly LANE plain messages fit
+        int accepted = 0;
+        for (int i = 0; i < LANE + 5; i++) {
+            if (dispatcher.submit(message(FLOODER))) accepted++;
+        }
+        assertEquals(LANE, accepted);
+        assertTrue(dispatcher.submit(callback(FLOODER)));
+    }
+
+    @Test
+    void throwingHandlerIsCountedAndTheLaneKeepsDraining() throws Exception {
+        long errorsBefore = Metrics.updateErrors("dispatch").get();
+        CountDownLatch second = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        UpdateDispatcher dispatcher = new UpdateDispatcher(u -> {
+            if (calls.incrementAndGet() == 1) throw new IllegalStateException("boom");
+            second.countDown();
+        }, LANE, 1_000);
+
+        assertTrue(dispatcher.submit(message(FLOODER)));
+        assertTrue(dispatcher.submit(message(FLOODER)));
+        assertTrue(second.await(5, TimeUnit.SECONDS), "update after the failed one was not handled");
+        assertEquals(errorsBefore + 1, Metrics.updateErrors("dispatch").get());
+    }
+
+    private Update callback(long userId) {
+        User from = new User();
+        from.setId(userId);
+        CallbackQuery cq = new CallbackQuery();
+        cq.setId(String.valueOf(ids.incrementAndGet()));
+        cq.setFrom(from);
+        cq.setData("vote");
+        Update u = new Update();
+        u.setUpdateId(ids.get());
+        u.setCallbackQuery(cq);
+        return u;
+    }
+
+    private Update message(long chatId) {
+        Chat chat = new Chat();
+        chat.setId(chatId);
+        Message m = new Message();
+        m.setChat(chat);
+        m.setText("hello");
+        Update u = new Update();
+        u.setUpdateId(ids.incrementAndGet());
+        u.setMessage(m);
+        return u;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
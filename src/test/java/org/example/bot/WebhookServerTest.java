@@ -0,0 +1,64 @@
+package org.example.bot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// An update the sink refuses must not be acknowledged: Telegram only redelivers on a non-2xx.
+class WebhookServerTest {
+
+    private static final String SECRET = "test-secret";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private WebhookServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) server.stop();
+    }
+
+    @Test
+    void refusedUpdateIsAnswered503AndAcceptedOne200() throws Exception {
+        List<Integer> seen = new CopyOnWriteArrayList<>();
+        server = new WebhookServer(0, "/hook", SECRET, u -> {
+            seen.add(u.getUpdateId());
+            return u.getUpdateId() % 2 == 0;
+        });
+        server.start();
+
+        assertEquals(200, post("{\"update_id\":2}", SECRET));
+        assertEquals(503, post("{\"update_id\":3}", SECRET));
+        assertEquals(List.of(2, 3), seen);
+
+        WebhookServer.Stats stats = server.getStats();
+        assertEquals(1, stats.accepted());
+        assertEquals(1, stats.refused());
+    }
+
+    @Test
+    void wrongSecretNeverReachesTheSink() throws Exception {
+        List<Update> seen = new CopyOnWriteArrayList<>();
+        server = new WebhookServer(0, "/hook", SECRET, seen::add);
+        server.start();
+
+        assertEquals(401, post("{\"update_id\":1}", "nope"));
+        assertEquals(0, seen.size());
+    }
+
+    private int post(String json, String secret) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + "/hook"))
+                .header(WebhookServer.SECRET_HEADER, secret)
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
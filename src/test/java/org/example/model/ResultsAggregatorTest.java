@@ -0,0 +1,64 @@
+package org.example.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Snapshots read while votes land must match their version exactly: every question's total
+// and the response count equal the version, never a vote more or less.
+class ResultsAggregatorTest {
+
+    private static final int VOTERS = 20_000;
+    private static final int THREADS = 8;
+
+    @Test
+    void snapshotNeverHoldsPartOfAResponse() throws Exception {
+        Survey survey = new Survey("s", List.of(
+                new Question("One?", List.of("a", "b", "c")),
+                new Question("Two?", List.of("x", "y"))), new User(1, "admin"));
+        AtomicInteger next = new AtomicInteger(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            Future<?>[] voters = new Future<?>[THREADS];
+            for (int t = 0; t < THREADS; t++) {
+                voters[t] = pool.submit(() -> {
+                    for (int id; (id = next.getAndIncrement()) <= VOTERS; ) {
+                        survey.collectResponse(new User(id, "u"), List.of(id % 3, id % 2));
+                    }
+                });
+            }
+
+            int checked = 0;
+            while (!allDone(voters) || checked == 0) {
+                check(survey.getResults());
+                checked++;
+            }
+            for (Future<?> f : voters) f.get();
+            ResultsSnapshot last = survey.getResults();
+            check(last);
+            assertEquals(VOTERS, last.getVersion());
+            assertTrue(checked > 1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void check(ResultsSnapshot r) {
+        assertEquals(r.getVersion(), r.getResponses());
+        for (ResultsSnapshot.QuestionResult q : r.getQuestions()) {
+            assertEquals(r.getVersion(), q.getTotal());
+        }
+    }
+
+    private static boolean allDone(Future<?>[] futures) {
+        for (Future<?> f : futures) if (!f.isDone()) return false;
+        return true;
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SurveyStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void launchAndClosePlansSurviveARestart() throws Exception {
+        Community community = new Community(Community.DEFAULT_ID);
+        Survey pending = survey("pending");
+        Survey sent = survey("sent");
+        try (SurveyStore store = SurveyStore.open(dir, community)) {
+            community.setActiveSurvey(pending);
+            community.setActiveSurvey(sent);
+            pending.planLaunch(1_000_000L, 3);
+            sent.planLaunch(2_000_000L, 4);
+            sent.planClose(3_000_000L);
+        }
+
+        Community restored = new Community(Community.DEFAULT_ID);
+        try (SurveyStore store = SurveyStore.open(dir, restored)) {
+            Survey p = restored.findSurvey("pending");
+            assertNotNull(p);
+            assertEquals(1_000_000L, p.getLaunchAt());
+            assertEquals(3, p.getLaunchCloseMinutes());
+            assertEquals(0, p.getCloseAt());
+
+            Survey s = restored.findSurvey("sent");
+            assertEquals(0, s.getLaunchAt());
+            assertEquals(3_000_000L, s.getCloseAt());
+        }
+    }
+
+    // A response the journal refused must leave no trace: not stored, not tallied, not
+    // blocking the member's next attempt.
+    @Test
+    void refusedResponseCanBeCastAgain() {
+        Community community = new Community(Community.DEFAULT_ID);
+        RefusingJournal journal = new RefusingJournal();
+        community.setJournal(journal);
+        Survey survey = survey("s");
+        community.setActiveSurvey(survey);
+        User voter = new User(7, "voter");
+
+        journal.refuse = true;
+        assertFalse(survey.collectResponse(voter, List.of(1)));
+        assertEquals(0, survey.getResponseCount());
+        assertEquals(0, survey.getQuestions().get(0).getVotes(1));
+        assertFalse(survey.hasResponded(7));
+
+        journal.refuse = false;
+        assertTrue(survey.collectResponse(voter, List.of(1)));
+        assertEquals(1, survey.getResponseCount());
+        assertEquals(1, survey.getQuestions().get(0).getVotes(1));
+        assertEquals(1, journal.responses);
+    }
+
+    private static Survey survey(String id) {
+        return new Survey(id, List.of(new Question("Tea or coffee?", List.of("Tea", "Coffee"))), new User(1, "admin"));
+    }
+
+    // stands in for SurveyStore.enqueue timing out ("Writer stalled") on one event
+    private static final class RefusingJournal implements Journal {
+        volatile boolean refuse;
+        int responses;
+
+        @Override public void responseCollected(Survey survey, long telegramId, List<Integer> answers) {
+            if (refuse) throw new IllegalStateException("Survey store is not writable. ");
+            responses++;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.service;
+
+import org.example.model.ChatGPTResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.example.service.LlmStub.error;
+import static org.example.service.LlmStub.ok;
+import static org.example.service.LlmStub.slow;
+import static org.example.service.LlmStub.status;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Retry classification and the circuit breaker, against LlmStub. send-message is billed and
+// appends to the conversation, so it is only re-sent when the server provably didn't take it.
+class ChatGPTServiceTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long REQUEST_TIMEOUT_MILLIS = 1_000;
+
+    private LlmStub stub;
+
+    @AfterEach
+    void tearDown() {
+        if (stub != null) stub.close();
+    }
+
+    @Test
+    void sendMessageIsSentOnceOn500() throws Exception {
+        stub = new LlmStub((endpoint, hit) -> status(500));
+        assertFalse(service().sendMessage("hi").isSuccess());
+        Thread.sleep(200); // a retry would have arrived by now
+        assertEquals(1, stub.hits("send-message"));
+    }
+
+    @Test
+    void sendMessageIsSentOnceOnReadTimeout() throws Exception {
+        stub = new LlmStub((endpoint, hit) -> slow(3_000));
+        ChatGPTResponse r = service().sendMessage("hi");
+        assertEquals("TIMEOUT", r.getErrorCode());
+        Thread.sleep(200);
+        assertEquals(1, stub.hits("send-message"));
+    }
+
+    @Test
+    void sendMessageIsRetriedOn429And503() throws Exception {
+        stub = new LlmStub((endpoint, hit) -> switch (hit) {
+            case 1 -> status(429);
+            case 2 -> status(503);
+            default -> ok("done");
+        });
+        ChatGPTResponse r = service().sendMessage("hi");
+        assertTrue(r.isSuccess());
+        assertEquals("done", r.getExtra());
+        assertEquals(3, stub.hits("send-message"));
+    }
+
+    @Test
+    void retriesStopAtMaxAttempts() throws Exception {
+        stub = new LlmStub((endpoint, hit) -> status(503));
+        assertFalse(service().sendMessage("hi").isSuccess());
+        assertEquals(MAX_ATTEMPTS, stub.hits("send-message"));
+    }
+
+    @Test
+    void idempotentCallsAreRetriedOn500AndReadTimeout() throws Exception {
+        stub = new LlmStub((endpoint, hit) -> switch (hit) {
+            case 1 -> status(500);
+            case 2 -> slow(3_000);
+            default -> ok("Balance: 12");
+        });
+        ChatGPTResponse r = service().checkBalance();
+        assertTrue(r.isSuccess());
+        assertEquals(3, stub.hits("check-balance"));
+    }
+
+    @Test
+    void applicationErrorIsNotRetried() throws Exception {
+        stub = new LlmStub((endpoint, hit) -> error("NO_CREDIT"));
+        ChatGPTResponse r = service().clearHistory();
+        assertEquals("NO_CREDIT", r.getErrorCode());
+        assertEquals(1, stub.hits("clear-history"));
+    }
+
+    @Test
+    void notFoundFallsBackToTrailingSlash() throws Exception {
+        stub = new LlmStub((endpoint, hit) -> hit == 1 ? status(404) : ok("slash"));
+        ChatGPTResponse r = service().sendMessage("hi");
+        assertEquals("slash", r.getExtra());
+        assertEquals(2, stub.hits("send-message"));
+    }
+
+    @Test
+    void breakerOpensThenLetsOneProbeThrough() throws Exception {
+        stub = new LlmStub((endpoint, hit) -> status(500));
+        ChatGPTService gpt = new ChatGPTService(stub.baseUrl(), "test", Duration.ofSeconds(1), Duration.ofSeconds(1),
+                1, 10, 2, 300);
+
+        assertFalse(gpt.checkBalance().isSuccess());
+        assertFalse(gpt.isCircuitOpen());
+        assertFalse(gpt.checkBalance().isSuccess());
+        assertTrue(gpt.isCircuitOpen());
+
+        // open: failed fast, the endpoint isn't called
+        assertEquals("CIRCUIT_OPEN", gpt.checkBalance().getErrorCode());
+        assertEquals(2, stub.hits("check-balance"));
+
+        Thread.sleep(350);
+        stub.setScript((endpoint, hit) -> ok("Balance: 5", 300));
+        CompletableFuture<ChatGPTResponse> probe = gpt.checkBalanceAsync();
+        Thread.sleep(50);
+        // half-open: only the probe goes through
+        assertEquals("CIRCUIT_OPEN", gpt.checkBalance().getErrorCode());
+        assertTrue(probe.join().isSuccess());
+        assertEquals(3, stub.hits("check-balance"));
+
+        assertFalse(gpt.isCircuitOpen());
+        assertTrue(gpt.checkBalance().isSuccess());
+    }
+
+    @Test
+    void failedProbeReopensTheBreaker() throws Exception {
+        stub = new LlmStub((endpoint, hit) -> status(503));
+        ChatGPTService gpt = new ChatGPTService(stub.baseUrl(), "test", Duration.ofSeconds(1), Duration.ofSeconds(1),
+                1, 10, 1, 200);
+        assertFalse(gpt.checkBalance().isSuccess());
+        assertTrue(gpt.isCircuitOpen());
+
+        Thread.sleep(250);
+        assertFalse(gpt.checkBalance().isSuccess()); // the probe
+        assertTrue(gpt.isCircuitOpen());
+        assertEquals("CIRCUIT_OPEN", gpt.checkBalance().getErrorCode());
+        assertEquals(2, stub.hits("check-balance"));
+    }
+
+    private ChatGPTService service() {
+        return new ChatGPTService(stub.baseUrl(), "test", Duration.ofSeconds(1), Duration.ofMillis(REQUEST_TIMEOUT_MILLIS),
+                MAX_ATTEMPTS, 10, 1_000, 1_000);
+    }
+}
@@ -0,0 +1,166 @@
+package org.example.service;
+
+import org.example.model.ChatGPTResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.example.service.LlmStub.error;
+import static org.example.service.LlmStub.ok;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Hedged send-message against LlmStub: the twin goes out after the delay and wins, the loser
+// is cancelled (or left to finish), and hedges stop once the budget read from check-balance
+// is spent.
+class HedgingTest {
+
+    private static final long HEDGE_DELAY_MILLIS = 100;
+    private static final long SLOW_MILLIS = 1_500;
+
+    private LlmStub stub;
+
+    @AfterEach
+    void tearDown() {
+        if (stub != null) stub.close();
+    }
+
+    @Test
+    void hedgeFiresAfterTheDelayAndTheLoserIsCancelled() throws Exception {
+        stub = new LlmStub((endpoint, hit) -> endpoint.equals("check-balance") ? ok("Balance: 10")
+                : hit == 1 ? ok("slow", SLOW_MILLIS) : ok("fast"));
+        ChatGPTService gpt = service();
+        awaitBudget(gpt);
+
+        long start = System.nanoTime();
+        ChatGPTResponse r = gpt.sendMessageHedged("hi", ChatGPTResponse::isSuccess).get(5, TimeUnit.SECONDS);
+        long tookMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("fast", r.getExtra());
+        assertTrue(tookMillis >= HEDGE_DELAY_MILLIS && tookMillis < SLOW_MILLIS, "took " + tookMillis + " ms");
+        assertEquals(1, gpt.getHedgesFired());
+        assertEquals(2, stub.hits("send-message"));
+        assertEquals(9.0, gpt.getHedgeBudgetLeft());
+        // the slow leg's reply has nobody left to read it
+        waitFor(() -> stub.abandoned.get() == 1, SLOW_MILLIS + 2_000);
+    }
+
+    @Test
+    void fastAnswerIsNotHedged() throws Exception {
+        stub = new LlmStub((endpoint, hit) -> endpoint.equals("check-balance") ? ok("Balance: 10") : ok("quick"));
+        ChatGPTService gpt = service();
+        awaitBudget(gpt);
+
+        assertEquals("quick", gpt.sendMessageHedged("hi", ChatGPTResponse::isSuccess).get(5, TimeUnit.SECONDS).getExtra());
+        Thread.sleep(HEDGE_DELAY_MILLIS * 2);
+        assertEquals(0, gpt.getHedgesFired());
+        assertEquals(1, stub.hits("send-message"));
+    }
+
+    @Test
+    void hedgingStopsWhenTheBudgetIsSpent() throws Exception {
+        // every first leg is slow, every twin fast
+        stub = new LlmStub((endpoint, hit) -> endpoint.equals("check-balance") ? ok("Balance: 2")
+                : hit % 2 == 1 ? ok("slow", 400) : ok("fast"));
+        ChatGPTService gpt = service();
+        awaitBudget(gpt);
+        assertEquals(2.0, gpt.getHedgeBudgetLeft());
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals("fast", gpt.sendMessageHedged("hi", ChatGPTResponse::isSuccess).get(5, TimeUnit.SECONDS).getExtra());
+        }
+        assertEquals(2, gpt.getHedgesFired());
+        assertEquals(0.0, gpt.getHedgeBudgetLeft());
+
+        stub.setScript((endpoint, hit) -> ok("slow", 400));
+        assertEquals("slow", gpt.sendMessageHedged("hi", ChatGPTResponse::isSuccess).get(5, TimeUnit.SECONDS).getExtra());
+        assertEquals(2, gpt.getHedgesFired());
+        assertEquals(5, stub.hits("send-message"));
+    }
+
+    @Test
+    void noHedgeUntilTheBudgetIsKnown() throws Exception {
+        stub = new LlmStub((endpoint, hit) -> endpoint.equals("check-balance") ? ok("Balance: 10", 1_000) : ok("slow", 400));
+        ChatGPTService gpt = service();
+
+        assertEquals("slow", gpt.sendMessageHedged("hi", ChatGPTResponse::isSuccess).get(5, TimeUnit.SECONDS).getExtra());
+        assertEquals(0, gpt.getHedgesFired());
+        assertEquals(1, stub.hits("send-message"));
+    }
+
+    @Test
+    void toCompletionLetsTheLoserFinishBeforeSettling() throws Exception {
+        stub = new LlmStub((endpoint, hit) -> endpoint.equals("check-balance") ? ok("Balance: 10")
+                : hit == 1 ? ok("slow", 600) : ok("fast"));
+        ChatGPTService gpt = service();
+        awaitBudget(gpt);
+
+        ChatGPTService.Hedged hedged = gpt.sendMessageHedgedToCompletion("hi", ChatGPTResponse::isSuccess);
+        assertEquals("fast", hedged.first().get(5, TimeUnit.SECONDS).getExtra());
+        assertFalse(hedged.settled().isDone());
+        assertEquals(2, hedged.settled().get(5, TimeUnit.SECONDS));
+        assertEquals(0, stub.abandoned.get());
+    }
+
+    @Test
+    void settledWithOneLegWhenNotHedged() throws Exception {
+        stub = new LlmStub((endpoint, hit) -> endpoint.equals("check-balance") ? ok("Balance: 0") : ok("slow", 300));
+        ChatGPTService gpt = service();
+        awaitBudget(gpt);
+
+        ChatGPTService.Hedged hedged = gpt.sendMessageHedgedToCompletion("hi", ChatGPTResponse::isSuccess);
+        assertEquals("slow", hedged.first().get(5, TimeUnit.SECONDS).getExtra());
+        assertEquals(1, hedged.settled().get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void applicationErrorsDoNotTripTheBreaker() throws Exception {
+        stub = new LlmStub((endpoint, hit) -> endpoint.equals("check-balance") ? ok("Balance: 10") : error("BAD_PROMPT"));
+        ChatGPTService gpt = service();
+        awaitBudget(gpt);
+
+        for (int i = 0; i < 3; i++) {
+            ChatGPTResponse r = gpt.sendMessageHedged("hi", ChatGPTResponse::isSuccess).get(5, TimeUnit.SECONDS);
+            assertEquals("BAD_PROMPT", r.getErrorCode());
+        }
+        assertFalse(gpt.isCircuitOpen());
+    }
+
+    @Test
+    void transportFailuresTripTheBreaker() throws Exception {
+        stub = new LlmStub((endpoint, hit) -> endpoint.equals("check-balance") ? ok("Balance: 10") : LlmStub.status(503));
+        ChatGPTService gpt = service();
+        awaitBudget(gpt);
+
+        assertFalse(gpt.sendMessageHedged("hi", ChatGPTResponse::isSuccess).get(5, TimeUnit.SECONDS).isSuccess());
+        assertTrue(gpt.isCircuitOpen());
+        CompletableFuture<ChatGPTResponse> open = gpt.sendMessageHedged("hi", ChatGPTResponse::isSuccess);
+        assertEquals("CIRCUIT_OPEN", open.get(1, TimeUnit.SECONDS).getErrorCode());
+    }
+
+    // one attempt per leg, breaker opening on the first failure; the hedge delay is fixed
+    // because minSamples is never reached
+    private ChatGPTService service() {
+        ChatGPTService gpt = new ChatGPTService(stub.baseUrl(), "test", Duration.ofSeconds(1), Duration.ofSeconds(5),
+                1, 10, 1, 10_000);
+        gpt.setHedgePolicy(new HedgePolicy(0.9, HEDGE_DELAY_MILLIS, 1_000, 1, 1));
+        return gpt;
+    }
+
+    private static void awaitBudget(ChatGPTService gpt) throws InterruptedException {
+        waitFor(() -> !Double.isNaN(gpt.getHedgeBudgetLeft()), 3_000);
+    }
+
+    private static void waitFor(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("condition not met in " + timeoutMillis + " ms");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// The LLM endpoint on loopback for tests. Each request asks the script what to answer, given
+// the endpoint (send-message, check-balance, clear-history) and how many times that endpoint
+// has been hit so far, this one included. A reply the client no longer waits for fails to
+// write and is counted as abandoned.
+final class LlmStub implements AutoCloseable {
+
+    record Reply(int status, long delayMillis, String body) {}
+
+    interface Script {
+        Reply next(String endpoint, int hit);
+    }
+
+    static final String SURVEY_JSON = "{\"questions\":[{\"text\":\"Tea or coffee?\",\"options\":[\"Tea\",\"Coffee\"]}]}";
+
+    final AtomicInteger abandoned = new AtomicInteger();
+
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+    private final HttpServer server;
+    private volatile Script script;
+
+    LlmStub(Script script) throws IOException {
+        this.script = script;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+    }
+
+    static Reply ok(String extra) {
+        return ok(extra, 0);
+    }
+
+    static Reply ok(String extra, long delayMillis) {
+        return new Reply(200, delayMillis, "<response><success>true</success><extra><![CDATA[" + extra + "]]></extra></response>");
+    }
+
+    static Reply error(String code) {
+        return new Reply(200, 0, "<response><success>false</success><errorCode>" + code + "</errorCode></response>");
+    }
+
+    static Reply status(int status) {
+        return new Reply(status, 0, "");
+    }
+
+    static Reply slow(long delayMillis) {
+        return ok(SURVEY_JSON, delayMillis);
+    }
+
+    void setScript(Script script) {
+        this.script = script;
+    }
+
+    int hits(String endpoint) {
+        AtomicInteger n = hits.get(endpoint);
+        return n == null ? 0 : n.get();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try (ex) {
+            String path = ex.getRequestURI().getPath().replace("/", "");
+            int hit = hits.computeIfAbsent(path, k -> new AtomicInteger()).incrementAndGet();
+            Reply reply = script.next(path, hit);
+            if (reply.delayMillis() > 0) {
+                try {
+                    Thread.sleep(reply.delayMillis());
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            byte[] bytes = reply.body().getBytes(StandardCharsets.UTF_8);
+            try {
+                ex.sendResponseHeaders(reply.status(), bytes.length == 0 ? -1 : bytes.length);
+                if (bytes.length > 0) {
+                    try (OutputStream out = ex.getResponseBody()) {
+                        out.write(bytes);
+                    }
+                }
+            } catch (IOException e) {
+                abandoned.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.example.service;
+
+import org.example.model.Community;
+import org.example.model.CommunityRegistry;
+import org.example.model.Question;
+import org.example.model.ResultsSnapshot;
+import org.example.model.Survey;
+import org.example.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Voters race closeSurveyIfOpen (twice, from two threads) on every round. Whatever the
+// interleaving, each response that collectResponse accepted must be counted exactly once, in
+// the response store and in every per-option tally, and nothing may be accepted after close.
+class SurveyCloseRaceTest {
+
+    private static final int ROUNDS = 300;
+    private static final int VOTERS = 64;
+    private static final int THREADS = 8;
+
+    private SurveyScheduler scheduler;
+    private ExecutorService pool;
+    private Community community;
+    private SurveyManager manager;
+    private final List<User> members = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new SurveyScheduler();
+        pool = Executors.newFixedThreadPool(THREADS + 2);
+        community = new Community(Community.DEFAULT_ID);
+        for (int i = 0; i < VOTERS; i++) {
+            User u = new User(1000 + i, "voter" + i);
+            community.addMember(u);
+            members.add(u);
+        }
+        manager = new SurveyManager(community, new ChatGPTService("http://127.0.0.1:1/", "test"),
+                scheduler, new CommunityRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+        scheduler.shutdown();
+    }
+
+    @Test
+    void acceptedVotesAreCountedExactlyOnceWhileClosing() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            Survey survey = manager.createManualSurvey(List.of(
+                    new Question("q1", List.of("a", "b", "c")),
+                    new Question("q2", List.of("x", "y"))), members.get(0));
+
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicInteger closedBy = new AtomicInteger();
+            // close somewhere in the middle of the voting, not before or after all of it
+            int closeAfter = ThreadLocalRandom.current().nextInt(VOTERS);
+            List<Future<?>> closers = new ArrayList<>();
+            for (int c = 0; c < 2; c++) {
+                closers.add(pool.submit(() -> {
+                    start.await();
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+                    while (survey.getResponseCount() < closeAfter && System.nanoTime() < deadline) Thread.onSpinWait();
+                    if (manager.closeSurveyIfOpen(survey)) closedBy.incrementAndGet();
+                    return null;
+                }));
+            }
+            List<Future<List<Integer>>> votes = new ArrayList<>();
+            for (User u : members) {
+                List<Integer> answers = List.of(ThreadLocalRandom.current().nextInt(3), ThreadLocalRandom.current().nextInt(2));
+                long jitterNanos = ThreadLocalRandom.current().nextLong(200_000);
+                votes.add(pool.submit(() -> {
+                    start.await();
+                    long until = System.nanoTime() + jitterNanos; // spread the votes out a little
+                    while (System.nanoTime() < until) Thread.onSpinWait();
+                    // some voters try twice: the second attempt must never count
+                    boolean ok = survey.collectResponse(u, answers);
+                    boolean again = (u.getTelegramId() & 3) == 0 && survey.collectResponse(u, answers);
+                    assertFalse(again, "duplicate response accepted");
+                    return ok ? answers : null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : closers) f.get(10, TimeUnit.SECONDS);
+
+            Map<Long, List<Integer>> accepted = new HashMap<>();
+            for (int i = 0; i < members.size(); i++) {
+                List<Integer> a = votes.get(i).get(10, TimeUnit.SECONDS);
+                if (a != null) accepted.put(members.get(i).getTelegramId(), a);
+            }
+
+            assertEquals(1, closedBy.get(), "exactly one closer wins");
+            assertFalse(survey.isActive());
+            assertFalse(survey.collectResponse(new User(1, "late"), List.of(0, 0)), "vote accepted after close");
+
+            assertEquals(accepted.size(), survey.getResponseCount(), "round " + round);
+            assertEquals(accepted, survey.getResponses(), "round " + round);
+
+            long[][] expected = new long[2][3];
+            for (List<Integer> a : accepted.values()) {
+                expected[0][a.get(0)]++;
+                expected[1][a.get(1)]++;
+            }
+            ResultsSnapshot results = survey.getResults();
+            assertEquals(accepted.size(), results.getResponses());
+            for (int q = 0; q < 2; q++) {
+                Question question = survey.getQuestions().get(q);
+                ResultsSnapshot.QuestionResult r = results.getQuestions().get(q);
+                for (int o = 0; o < question.getOptions().size(); o++) {
+                    assertEquals(expected[q][o], question.getVotes(o), "round " + round + " q" + q + " option " + o);
+                    assertEquals(expected[q][o], r.getCount(o));
+                }
+            }
+        }
+        assertTrue(community.getActiveSurveys().isEmpty());
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.service;
+
+import org.example.model.Community;
+import org.example.model.CommunityRegistry;
+import org.example.model.Question;
+import org.example.model.Survey;
+import org.example.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// After a restart each survey resumes its own plan: pending launches are sent (not closed),
+// sent surveys close at their persisted deadline rather than startTime + 5 minutes.
+class SurveyRestoreTest {
+
+    private final Community community = new Community(Community.DEFAULT_ID);
+    private final SurveyManager manager = new SurveyManager(community,
+            new ChatGPTService("http://127.0.0.1:1/", "test"), new SurveyScheduler(), new CommunityRegistry());
+
+    @Test
+    void overduePendingLaunchIsSentWithItsAnsweringWindow() throws Exception {
+        Survey survey = active("launch");
+        survey.planLaunch(System.currentTimeMillis() - 60_000, 3);
+
+        CompletableFuture<Integer> launched = new CompletableFuture<>();
+        manager.restorePlan(survey, (s, closeMinutes) -> {
+            assertSame(survey, s);
+            launched.complete(closeMinutes);
+        });
+
+        assertEquals(3, launched.get(5, TimeUnit.SECONDS));
+        assertTrue(survey.isActive());
+    }
+
+    @Test
+    void closeDeadlineIsTakenFromThePlan() throws Exception {
+        Survey overdue = active("overdue");
+        overdue.planClose(System.currentTimeMillis() - 1);
+        Survey later = active("later");
+        later.planClose(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(30));
+
+        manager.restorePlan(overdue, (s, m) -> { throw new AssertionError("already sent"); });
+        manager.restorePlan(later, (s, m) -> { throw new AssertionError("already sent"); });
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (overdue.isActive() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertFalse(overdue.isActive());
+        assertTrue(later.isActive());
+    }
+
+    private Survey active(String id) {
+        Survey survey = new Survey(id, List.of(new Question("Tea or coffee?", List.of("Tea", "Coffee"))), new User(1, "admin"));
+        community.setActiveSurvey(survey);
+        return survey;
+    }
+}
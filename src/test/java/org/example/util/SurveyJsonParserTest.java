@@ -0,0 +1,198 @@
+package org.example.util;
+
+import org.example.model.Question;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Every file in llm-corpus/ against the questions it must yield (strict, and lenient where it
+// differs), plus the escape and truncation edge cases one at a time. Questions are compared
+// as "text -> [option|option]" so a failure shows exactly which string was decoded wrong.
+class SurveyJsonParserTest {
+
+    private static final Map<String, List<String>> STRICT = new LinkedHashMap<>();
+    private static final Map<String, List<String>> LENIENT = new LinkedHashMap<>();
+
+    static {
+        STRICT.put("01-bare.txt", List.of(
+                "מה היום המועדף עליך למפגש? -> [ראשון|שני|שלישי]",
+                "באיזו שעה? -> [בוקר|צהריים|ערב|לילה]"));
+        STRICT.put("02-fenced-chatter.txt", List.of(
+                "What should the next meetup be about? -> [Java|Kotlin|Go]",
+                "Preferred format? -> [Talk|Workshop]"));
+        STRICT.put("03-unicode-escapes.txt", List.of(
+                "\u05de\u05d4 \u05d3\u05e2\u05ea\u05da? -> [\u05db\u05df|\u05dc\u05d0]",
+                "Emoji \ud83c\udf55 ok? -> [\u2705|\u274c]"));
+        STRICT.put("04-quotes-and-backslashes.txt", List.of(
+                "Do you agree with \"remote first\"? -> [Yes|No|Depends \\ maybe]",
+                "Path C:\\temp\\x or a/b? -> [C:\\temp|a/b]"));
+        STRICT.put("05-newlines-and-tabs.txt", List.of(
+                "Line one\nline two\tand a tab -> [A\r\nB|C]"));
+        STRICT.put("06-extra-fields-and-nesting.txt", List.of(
+                "Real question? -> [x|y]",
+                "Second? -> [a|b|c]"));
+        STRICT.put("07-too-many-options-and-questions.txt", List.of(
+                "Q1 -> [a|b]", "Q2 -> [a|b]", "Q3 -> [a|b]"));
+        LENIENT.put("07-too-many-options-and-questions.txt", List.of(
+                "Five options -> [1|2|3|4|5]", "One option -> [only]",
+                "Q1 -> [a|b]", "Q2 -> [a|b]", "Q3 -> [a|b]", "Q4 -> [a|b]"));
+        STRICT.put("08-truncated.txt", List.of("Complete one? -> [yes|no]"));
+        STRICT.put("09-trailing-commas.txt", List.of("Trailing commas? -> [a|b]"));
+        STRICT.put("10-braces-in-strings.txt", List.of(
+                "Use {braces} and [brackets]? -> [{yes}|[no]|\"}]\"]"));
+        STRICT.put("11-no-questions.txt", List.of());
+        STRICT.put("12-single-quoted-prose-prefix.txt", List.of("Options before text? -> [first|second]"));
+        STRICT.put("13-malformed-unicode.txt", List.of("Bad escape u12 and uZZZZ here -> [ok|ABC]"));
+    }
+
+    @Test
+    void everyCorpusFileHasExpectations() throws IOException {
+        List<String> files = corpusFiles();
+        assertEquals(STRICT.keySet().stream().toList(), files);
+    }
+
+    @Test
+    void corpusStrict() throws IOException {
+        for (String file : corpusFiles()) {
+            assertEquals(STRICT.get(file), describe(SurveyJsonParser.parseQuestions(resource(file))), file);
+        }
+    }
+
+    @Test
+    void corpusLenient() throws IOException {
+        for (String file : corpusFiles()) {
+            List<String> expected = LENIENT.getOrDefault(file, STRICT.get(file));
+            assertEquals(expected, describe(SurveyJsonParser.parseAllQuestions(resource(file))), file);
+        }
+    }
+
+    @Test
+    void unicodeEscapeDecodesToOneChar() {
+        assertEquals(List.of("א -> [ב|x]"), strict("{\"questions\":[{\"text\":\"\\u05d0\",\"options\":[\"\\u05D1\",\"x\"]}]}"));
+    }
+
+    @Test
+    void surrogatePairEscapesJoinIntoOneCodePoint() {
+        List<Question> qs = SurveyJsonParser.parseQuestions(
+                "{\"questions\":[{\"text\":\"\\ud83d\\ude00\",\"options\":[\"a\",\"b\"]}]}");
+        String text = qs.get(0).getText();
+        assertEquals("\uD83D\uDE00", text);
+        assertEquals(1, text.codePointCount(0, text.length()));
+    }
+
+    @Test
+    void rawSurrogatePairPassesThrough() {
+        assertEquals(List.of("pizza 🍕? -> [🍕|no]"), strict("{\"questions\":[{\"text\":\"pizza 🍕?\",\"options\":[\"🍕\",\"no\"]}]}"));
+    }
+
+    @Test
+    void escapedQuoteAndBackslash() {
+        assertEquals(List.of("say \"hi\" \\ / -> [\\|\"]"),
+                strict("{\"questions\":[{\"text\":\"say \\\"hi\\\" \\\\ \\/\",\"options\":[\"\\\\\",\"\\\"\"]}]}"));
+    }
+
+    @Test
+    void escapedBackslashBeforeClosingQuoteEndsTheString() {
+        assertEquals(List.of("dir\\ -> [a\\|b]"),
+                strict("{\"questions\":[{\"text\":\"dir\\\\\",\"options\":[\"a\\\\\",\"b\"]}]}"));
+    }
+
+    @Test
+    void truncatedInputKeepsOnlyCompletedQuestions() {
+        String full = "{\"questions\":[{\"text\":\"One?\",\"options\":[\"a\",\"b\"]},{\"text\":\"Two \\u05d0?\",\"options\":[\"c\",\"d\"]}]}";
+        int second = full.indexOf("{\"text\":\"Two");
+        int secondEnd = full.lastIndexOf('}', full.length() - 3) + 1;
+        for (int cut = 0; cut < full.length(); cut++) {
+            String prefix = full.substring(0, cut);
+            List<String> got = strict(prefix);
+            if (cut < second) {
+                assertTrue(got.size() <= 1, prefix);
+            } else if (cut < secondEnd) {
+                assertEquals(List.of("One? -> [a|b]"), got, prefix);
+            } else {
+                assertEquals(List.of("One? -> [a|b]", "Two א? -> [c|d]"), got, prefix);
+            }
+        }
+    }
+
+    @Test
+    void truncatedInsideEscapes() {
+        assertEquals(List.of(), strict("{\"questions\":[{\"text\":\"x\\"));
+        assertEquals(List.of(), strict("{\"questions\":[{\"text\":\"x\\u05"));
+        assertEquals(List.of(), strict("{\"questions\":[{\"text\":\"x\",\"options\":[\"a\",\"\\u05d"));
+    }
+
+    @Test
+    void strictRejectsOptionCountsLenientKeepsThem() {
+        String json = "{\"questions\":[{\"text\":\"one\",\"options\":[\"a\"]},{\"text\":\"five\",\"options\":[\"1\",\"2\",\"3\",\"4\",\"5\"]},"
+                + "{\"text\":\"ok\",\"options\":[\"a\",\"b\"]},{\"text\":\"no options\"}]}";
+        assertEquals(List.of("ok -> [a|b]"), strict(json));
+        assertEquals(List.of("one -> [a]", "five -> [1|2|3|4|5]", "ok -> [a|b]"),
+                describe(SurveyJsonParser.parseAllQuestions(json)));
+    }
+
+    @Test
+    void lenientStopsAtSixteenQuestions() {
+        StringBuilder sb = new StringBuilder("{\"questions\":[");
+        for (int i = 0; i < 20; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"text\":\"q").append(i).append("\",\"options\":[\"a\",\"b\"]}");
+        }
+        sb.append("]}");
+        assertEquals(3, SurveyJsonParser.parseQuestions(sb.toString()).size());
+        assertEquals(16, SurveyJsonParser.parseAllQuestions(sb).size());
+    }
+
+    @Test
+    void nullAndGarbage() {
+        assertEquals(List.of(), SurveyJsonParser.parseQuestions((String) null));
+        assertEquals(List.of(), SurveyJsonParser.parseAllQuestions(null));
+        assertEquals(List.of(), strict("{\"questions\":\"none\"}"));
+        assertEquals(List.of(), strict("]]}}{{[[\"\\"));
+    }
+
+    @Test
+    void stringField() {
+        String json = "{\"id\":7,\"nested\":{\"topic\":\"inner\"},\"topic\":\"caf\\u00e9 \\\"x\\\"\"}";
+        assertEquals("café \"x\"", SurveyJsonParser.parseStringField(json, "topic"));
+        assertNull(SurveyJsonParser.parseStringField(json, "missing"));
+        assertNull(SurveyJsonParser.parseStringField("{\"topic\":\"cut", "topic"));
+        assertNotNull(SurveyJsonParser.parseStringField("{\"topic\":\"\"}", "topic"));
+    }
+
+    private static List<String> strict(String json) {
+        return describe(SurveyJsonParser.parseQuestions(json));
+    }
+
+    private static List<String> describe(List<Question> questions) {
+        List<String> out = new ArrayList<>();
+        for (Question q : questions) out.add(q.getText() + " -> [" + String.join("|", q.getOptions()) + "]");
+        return out;
+    }
+
+    private static List<String> corpusFiles() throws IOException {
+        List<String> files = new ArrayList<>();
+        for (String line : resource("index.txt").split("\n")) {
+            if (!line.isBlank() && !line.trim().equals("index.txt")) files.add(line.trim());
+        }
+        return files;
+    }
+
+    private static String resource(String name) throws IOException {
+        try (InputStream in = SurveyJsonParserTest.class.getClassLoader().getResourceAsStream("llm-corpus/" + name)) {
+            assertNotNull(in, "missing corpus file " + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}